@@ -2,7 +2,9 @@ package de.aaronsom.blindWriter;
 
 import de.aaronsom.blindWriter.file.FileSaver;
 import de.aaronsom.blindWriter.file.TxtFileSaver;
+import de.aaronsom.blindWriter.prediction.PredictionEngine;
 import de.aaronsom.blindWriter.sound.SoundManager;
+import de.aaronsom.blindWriter.spelling.SpellChecker;
 import de.aaronsom.blindWriter.writing.BlindWriterKeyListener;
 import org.odftoolkit.simple.TextDocument;
 import org.odftoolkit.simple.text.Paragraph;
@@ -17,6 +19,7 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * The main window of this application.
@@ -29,18 +32,28 @@ public class MainGUI extends JFrame{
     private JToolBar toolBar;
     private JButton openFileButton;
     private JButton saveFileButton;
+    private JButton loadSoundPackButton;
 
     private SoundManager soundManager;
     private FileSaver fileSaver;
+    private SpellChecker spellChecker;
+    private PredictionEngine predictionEngine;
     /**
-     * Constructs the main window and the toolbar
+     * Constructs the main window and the toolbar.
+     * Calibrates the audio latency in the background if it has not been calibrated before or if requested.
+     * @param calibrate true to calibrate the audio latency even if it has been calibrated before
      */
-    public MainGUI(){
+    public MainGUI(boolean calibrate){
         contentPane = getContentPane();
         contentPane.setLayout(new BorderLayout());
         WindowsKeyHook.blockWindowsKey();
 
         soundManager = new SoundManager();
+        if(calibrate || !soundManager.getAudioOutput().isCalibrated()){
+            soundManager.calibrate();
+        }
+        spellChecker = SpellChecker.createDefault(soundManager);
+        predictionEngine = new PredictionEngine(soundManager);
 
         setupToolbar();
 
@@ -49,14 +62,14 @@ public class MainGUI extends JFrame{
 
     /**
      * Creates a new {@link MainGUI} to start the program.
-     * @param args not used
+     * @param args "--calibrate" to calibrate the audio latency again
      */
     public static void main(String args[]){
-        new MainGUI();
+        new MainGUI(Arrays.asList(args).contains("--calibrate"));
     }
 
     /**
-     * Sets up the toolbar with the 'Save' and 'Open Document' buttons.
+     * Sets up the toolbar with the 'Save', 'Open Document' and 'Load Voice' buttons.
      */
     private void setupToolbar(){
         toolBar = new JToolBar();
@@ -70,11 +83,18 @@ public class MainGUI extends JFrame{
         saveFileButton = new JButton("Speichern");
         saveFileButton.addActionListener(this::saveDocumentAction);
         toolBar.add(saveFileButton);
+
+        loadSoundPackButton = new JButton("Stimme laden");
+        loadSoundPackButton.addActionListener(this::loadSoundPackAction);
+        toolBar.add(loadSoundPackButton);
     }
 
     /**
      * Sets up documentTextArea for the selected file.
-     * Enables line wrap by words and adds the {@link BlindWriterKeyListener} to it.
+     * Enables line wrap by words, loads the file and then adds the {@link BlindWriterKeyListener} to it,
+     * so the listener can index the loaded text for reading back.
+     * The listener informs spellChecker and predictionEngine about all written text.
+     * The completions of predictionEngine are rebuilt from the word list and the file.
      * At the end, the JScrollPane for the text area is set up
      * @param file the file on which the text area is based and for which changes are stored
      */
@@ -82,8 +102,6 @@ public class MainGUI extends JFrame{
         documentTextArea = new JTextArea();
         documentTextArea.setLineWrap(true);
         documentTextArea.setWrapStyleWord(true);
-        documentTextArea.addKeyListener(new BlindWriterKeyListener(documentTextArea, fileSaver, soundManager));
-
         try(BufferedReader reader = new BufferedReader(new FileReader(file))){
             String line;
             while (true){
@@ -94,6 +112,14 @@ public class MainGUI extends JFrame{
         }catch(IOException ioException){
             ioException.printStackTrace();
         }
+        BlindWriterKeyListener keyListener = new BlindWriterKeyListener(documentTextArea, fileSaver, soundManager);
+        spellChecker.reset();
+        keyListener.addTextListener(spellChecker);
+        File wordList = new File(System.getProperty("user.home"), ".blind-writer/woerterbuch.txt");
+        predictionEngine.loadIndex(() -> PredictionEngine.createIndex(wordList, file));
+        keyListener.addTextListener(predictionEngine);
+        keyListener.setSuggestionProvider(predictionEngine);
+        documentTextArea.addKeyListener(keyListener);
         setupScollPane();
     }
 
@@ -165,5 +191,17 @@ public class MainGUI extends JFrame{
             fileSaver.save();
         }
     }
-}
 
+    /**
+     * When triggered, a directory selection dialog is created and the sound files in the selected
+     * directory are loaded in the background to replace the current sounds.
+     */
+    private void loadSoundPackAction(ActionEvent e) {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        int chooseResult = chooser.showOpenDialog(MainGUI.this);
+        if (chooseResult == JFileChooser.APPROVE_OPTION) {
+            soundManager.loadSoundPack(chooser.getSelectedFile());
+        }
+    }
+}
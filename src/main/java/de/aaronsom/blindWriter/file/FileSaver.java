@@ -22,8 +22,10 @@ public interface FileSaver {
     public void append(String toAppend);
 
     /**
-     * Remove text of indicated length at the end of the currently stored changes
+     * Remove text of indicated length at the end of the currently stored changes.
+     * Text that has already been saved is not removed.
      * @param toRemoveCount the number of character to remove
+     * @return the number of characters actually removed from the stored changes
      */
-    public void remove(int toRemoveCount);
+    public int remove(int toRemoveCount);
 }
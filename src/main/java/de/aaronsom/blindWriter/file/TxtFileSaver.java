@@ -52,11 +52,14 @@ public class TxtFileSaver implements FileSaver{
     }
 
     @Override
-    public void remove(int toRemoveCount) {
+    public int remove(int toRemoveCount) {
         if(toRemoveCount >= changes.length()){
+            int removed = changes.length();
             changes = "";
+            return removed;
         } else {
             changes = changes.substring(0, changes.length()-toRemoveCount);
+            return toRemoveCount;
         }
     }
 }
@@ -0,0 +1,198 @@
+package de.aaronsom.blindWriter.prediction;
+
+import de.aaronsom.blindWriter.sound.Signal;
+import de.aaronsom.blindWriter.sound.SoundManager;
+import de.aaronsom.blindWriter.util.DaemonThreadFactory;
+import de.aaronsom.blindWriter.writing.SuggestionProvider;
+import de.aaronsom.blindWriter.writing.TextListener;
+import de.aaronsom.blindWriter.writing.WordWalker;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Suggests the most frequent completion for the word currently being written and spells it out.
+ * The current word is followed through a {@link PrefixIndex} by a {@link WordWalker} on a background thread,
+ * so each character costs one step in the index.
+ * Once the current word has {@link #MIN_PREFIX_LENGTH} letters, a new suggestion is announced with
+ * {@link Signal#SUGGESTION} followed by its remaining letters.
+ */
+public class PredictionEngine implements TextListener, SuggestionProvider {
+    private static final Logger LOGGER = Logger.getLogger(PredictionEngine.class.getName());
+    /**
+     * The number of letters of a word before completions are suggested
+     */
+    public static final int MIN_PREFIX_LENGTH = 3;
+
+    /**
+     * Plays the suggestions
+     */
+    private final SoundManager soundManager;
+    /**
+     * Looks up the completions in the order the text was written
+     */
+    private final ExecutorService predictor;
+    /**
+     * Spells out suggestions, so spelling never delays processing of further characters
+     */
+    private final ExecutorService speaker;
+    /**
+     * The current suggestion or null
+     */
+    private volatile String suggestion;
+
+    /*
+     * The following fields are only accessed on the predictor thread
+     */
+    /**
+     * The index to look up completions in or null if no index is loaded
+     */
+    private PrefixIndex index;
+    /**
+     * Follows the current word through the index
+     */
+    private final WordWalker<PrefixIndex.Node> walker;
+
+    /**
+     * Constructs a new PredictionEngine without an index. No suggestions are made until an index is loaded.
+     * @param soundManager the {@link SoundManager} that plays the suggestions
+     */
+    public PredictionEngine(SoundManager soundManager){
+        this.soundManager = soundManager;
+        walker = new WordWalker<>(PrefixIndex.Node::child);
+        predictor = Executors.newSingleThreadExecutor(new DaemonThreadFactory("predictor"));
+        speaker = Executors.newSingleThreadExecutor(new DaemonThreadFactory("suggestion-speaker"));
+    }
+
+    /**
+     * Loads a new index in the background and uses it from the next word on.
+     * If loading fails, the current index is kept.
+     * @param indexLoader loads the index
+     */
+    public void loadIndex(Callable<PrefixIndex> indexLoader){
+        predictor.execute(() -> {
+            try{
+                index = indexLoader.call();
+            } catch(Exception e){
+                LOGGER.log(Level.WARNING, "Could not load the prediction index", e);
+            }
+            resetWord();
+        });
+    }
+
+    /**
+     * Creates an index from the words of all existing files.
+     * Words of the documents the user has written count as often as they occur in them,
+     * so the user's own words are suggested first.
+     * @param sources word lists and documents, files that do not exist are ignored
+     * @return the created index
+     * @throws IOException if reading a file fails
+     */
+    public static PrefixIndex createIndex(File... sources) throws IOException {
+        Map<String, Integer> wordFrequencies = new HashMap<>();
+        for(File source : sources){
+            if(source.isFile()){
+                try(Reader reader = Files.newBufferedReader(source.toPath(), StandardCharsets.UTF_8)){
+                    PrefixIndex.countWords(reader, wordFrequencies);
+                }
+            }
+        }
+        return new PrefixIndex(wordFrequencies, PrefixIndex.DEFAULT_COMPLETION_COUNT);
+    }
+
+    @Override
+    public String getSuggestion() {
+        return suggestion;
+    }
+
+    @Override
+    public void textAppended(String text) {
+        predictor.execute(() -> {
+            for(int i = 0; i < text.length(); i++){
+                append(text.charAt(i));
+            }
+            updateSuggestion();
+        });
+    }
+
+    @Override
+    public void textRemoved(int count) {
+        predictor.execute(() -> {
+            walker.remove(count);
+            suggestion = null;
+        });
+    }
+
+    /**
+     * Forgets the current word, e.g. because another document was opened
+     */
+    public void reset(){
+        predictor.execute(this::resetWord);
+    }
+
+    /**
+     * Starts a new word
+     */
+    private void resetWord(){
+        walker.startWord(index != null ? index.getRoot() : null);
+        suggestion = null;
+    }
+
+    /**
+     * Follows a letter in the index or starts a new word if c is no letter
+     */
+    private void append(char c){
+        if(!walker.append(c)){
+            resetWord();
+        }
+    }
+
+    /**
+     * Looks up the most frequent completion that is longer than the current word.
+     * If it differs from the current suggestion, it becomes the suggestion and is spelled out.
+     */
+    private void updateSuggestion(){
+        PrefixIndex.Node node = walker.getNode();
+        int depth = walker.getLength();
+        String best = null;
+        if(walker.isKnown() && depth >= MIN_PREFIX_LENGTH && node != null){
+            for(int rank = 0; rank < node.getCompletionCount() && best == null; rank++){
+                if(node.getCompletion(rank).length() > depth){
+                    best = node.getCompletion(rank);
+                }
+            }
+        }
+        if(best != null && !best.equals(suggestion)){
+            suggestion = best;
+            speak(best, depth);
+        } else if(best == null){
+            suggestion = null;
+        }
+    }
+
+    /**
+     * Spells out the letters of the suggestion after the already written prefix.
+     * Stops as soon as the suggestion is replaced.
+     */
+    private void speak(String word, int prefixLength){
+        speaker.execute(() -> {
+            if(suggestion != word){
+                return;
+            }
+            soundManager.play(Signal.SUGGESTION);
+            for(int i = prefixLength; i < word.length() && suggestion == word; i++){
+                soundManager.play(String.valueOf(word.charAt(i)));
+            }
+        });
+    }
+}
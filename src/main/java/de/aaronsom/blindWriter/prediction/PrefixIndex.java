@@ -0,0 +1,157 @@
+package de.aaronsom.blindWriter.prediction;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A trie of words in which every node caches the most frequent words starting with its prefix.
+ * Finding the best completions for a prefix therefore only takes one step per character of the prefix,
+ * independent of the number of words.
+ * The index never changes after its creation.
+ */
+public class PrefixIndex {
+    /**
+     * Default number of completions cached per node
+     */
+    public static final int DEFAULT_COMPLETION_COUNT = 3;
+
+    /**
+     * The node of the empty prefix
+     */
+    private final Node root;
+
+    /**
+     * Constructs a new PrefixIndex
+     * @param wordFrequencies the words in lower case and how often they occur
+     * @param completionCount the number of completions to cache per node
+     */
+    public PrefixIndex(Map<String, Integer> wordFrequencies, int completionCount){
+        BuildNode buildRoot = new BuildNode();
+        for(String word : wordFrequencies.keySet()){
+            BuildNode node = buildRoot;
+            for(int i = 0; i < word.length(); i++){
+                node = node.children.computeIfAbsent(word.charAt(i), c -> new BuildNode());
+            }
+            node.word = word;
+        }
+        Comparator<String> byFrequency = Comparator.<String, Integer>comparing(wordFrequencies::get)
+                                                   .reversed()
+                                                   .thenComparing(Comparator.naturalOrder());
+        root = buildRoot.freeze(byFrequency, completionCount);
+    }
+
+    /**
+     * Counts the words in text and adds them to wordFrequencies.
+     * A word is a sequence of letters, it is counted in lower case.
+     * @param text the text to count the words in
+     * @param wordFrequencies the map to add the counts to
+     * @throws IOException if reading the text fails
+     */
+    public static void countWords(Reader text, Map<String, Integer> wordFrequencies) throws IOException {
+        StringBuilder word = new StringBuilder();
+        int c;
+        do{
+            c = text.read();
+            if(c != -1 && Character.isLetter(c)){
+                word.append(Character.toLowerCase((char) c));
+            } else if(word.length() > 0){
+                wordFrequencies.merge(word.toString(), 1, Integer::sum);
+                word.setLength(0);
+            }
+        } while(c != -1);
+    }
+
+    /**
+     * @return the node of the empty prefix
+     */
+    public Node getRoot(){
+        return root;
+    }
+
+    /**
+     * A node of the index, reached by following the characters of a prefix from the root
+     */
+    public static class Node {
+        /**
+         * The characters leading to the children, sorted
+         */
+        private final char[] keys;
+        /**
+         * The children in the order of keys
+         */
+        private final Node[] children;
+        /**
+         * The most frequent words starting with the prefix of this node, most frequent first
+         */
+        private final String[] completions;
+
+        private Node(char[] keys, Node[] children, String[] completions){
+            this.keys = keys;
+            this.children = children;
+            this.completions = completions;
+        }
+
+        /**
+         * Follows one character of the prefix
+         * @param c the next character of the prefix in lower case
+         * @return the node of the extended prefix or null if no word starts with it
+         */
+        public Node child(char c){
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        /**
+         * @return the number of cached completions
+         */
+        public int getCompletionCount(){
+            return completions.length;
+        }
+
+        /**
+         * Returns a cached completion
+         * @param rank the rank of the completion, 0 is the most frequent word
+         * @return the completed word in lower case
+         */
+        public String getCompletion(int rank){
+            return completions[rank];
+        }
+    }
+
+    /**
+     * A node of the trie while the index is built
+     */
+    private static class BuildNode {
+        TreeMap<Character, BuildNode> children = new TreeMap<>();
+        String word;
+
+        /**
+         * Converts this node and all descendants into immutable nodes and collects their best completions
+         */
+        Node freeze(Comparator<String> byFrequency, int completionCount){
+            char[] keys = new char[children.size()];
+            Node[] frozenChildren = new Node[children.size()];
+            List<String> candidates = new ArrayList<>();
+            if(word != null){
+                candidates.add(word);
+            }
+            int i = 0;
+            for(Map.Entry<Character, BuildNode> child : children.entrySet()){
+                keys[i] = child.getKey();
+                frozenChildren[i] = child.getValue().freeze(byFrequency, completionCount);
+                candidates.addAll(Arrays.asList(frozenChildren[i].completions));
+                i++;
+            }
+            candidates.sort(byFrequency);
+            String[] completions = candidates.subList(0, Math.min(completionCount, candidates.size()))
+                                             .toArray(new String[0]);
+            return new Node(keys, frozenChildren, completions);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package de.aaronsom.blindWriter.server;
+
+/**
+ * The binary protocol between a {@link WritingClient} and a {@link WritingServer}.
+ * Every message starts with its type byte, all values are written with DataOutputStream.
+ *
+ * Client to server:
+ * OPEN: UTF document name, must be the first message of a connection
+ * KEY_PRESSED: int key code, char key char, boolean control down
+ * KEY_RELEASED: int key code
+ * SAVE
+ *
+ * Server to client:
+ * SOUND: float sample rate, int sample size in bits, int channels, int length, length bytes of
+ *        signed little endian PCM data
+ */
+final class Protocol {
+    static final byte OPEN = 1;
+    static final byte KEY_PRESSED = 2;
+    static final byte KEY_RELEASED = 3;
+    static final byte SAVE = 4;
+
+    static final byte SOUND = 1;
+
+    /**
+     * The largest sound the client accepts, larger messages indicate a broken connection
+     */
+    static final int MAX_SOUND_BYTES = 16 * 1024 * 1024;
+
+    private Protocol(){
+    }
+}
@@ -0,0 +1,57 @@
+package de.aaronsom.blindWriter.server;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * Executes tasks one after the other in order of submission on a shared executor.
+ * Many SerialExecutors can share a small thread pool while the tasks of each one never run concurrently.
+ */
+class SerialExecutor implements Executor {
+    /**
+     * The tasks that have not been started yet
+     */
+    private final Queue<Runnable> tasks;
+    /**
+     * The executor that runs the tasks
+     */
+    private final Executor executor;
+    /**
+     * The task currently handed to executor or null
+     */
+    private Runnable active;
+
+    /**
+     * Constructs a new SerialExecutor
+     * @param executor the executor that runs the tasks
+     */
+    SerialExecutor(Executor executor){
+        this.executor = executor;
+        tasks = new ArrayDeque<>();
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.add(() -> {
+            try{
+                task.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+        if(active == null){
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Hands the next task to executor
+     */
+    private synchronized void scheduleNext(){
+        active = tasks.poll();
+        if(active != null){
+            executor.execute(active);
+        }
+    }
+}
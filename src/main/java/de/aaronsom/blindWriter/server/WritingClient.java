@@ -0,0 +1,193 @@
+package de.aaronsom.blindWriter.server;
+
+import de.aaronsom.blindWriter.sound.SoundOutput;
+import de.aaronsom.blindWriter.util.DaemonThreadFactory;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A thin client of a {@link WritingServer}.
+ * It sends all key events to its session on the server and plays the sounds the session sends back.
+ * Added as {@link KeyListener} to any component, it consumes the key events like a BlindWriterKeyListener.
+ */
+public class WritingClient implements KeyListener, Closeable {
+    private static final Logger LOGGER = Logger.getLogger(WritingClient.class.getName());
+
+    /**
+     * The connection to the server
+     */
+    private final Socket socket;
+    /**
+     * The stream to the server, all writes are synchronized on it
+     */
+    private final DataOutputStream output;
+    /**
+     * Plays the sounds sent by the server
+     */
+    private final SoundOutput soundOutput;
+    /**
+     * The thread playing the sounds sent by the server
+     */
+    private final Thread receiver;
+
+    /**
+     * Connects to a server and opens a document
+     * @param host the host of the server
+     * @param port the port of the server
+     * @param documentName the name of the document without extension, letters, digits, '_' and '-' only
+     * @param soundOutput the output to play the sounds sent by the server
+     * @throws IOException if the connection fails
+     */
+    public WritingClient(String host, int port, String documentName, SoundOutput soundOutput) throws IOException {
+        this.soundOutput = soundOutput;
+        socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        synchronized(output){
+            output.writeByte(Protocol.OPEN);
+            output.writeUTF(documentName);
+            output.flush();
+        }
+        receiver = new DaemonThreadFactory("sound-receiver").newThread(this::receiveSounds);
+        receiver.start();
+    }
+
+    /**
+     * Sends a key press to the server
+     * @param keyCode the key code of the pressed key
+     * @param keyChar the character of the pressed key or {@link KeyEvent#CHAR_UNDEFINED}
+     * @param controlDown true if the control key was held down
+     * @throws IOException if sending fails
+     */
+    public void sendKeyPressed(int keyCode, char keyChar, boolean controlDown) throws IOException {
+        synchronized(output){
+            output.writeByte(Protocol.KEY_PRESSED);
+            output.writeInt(keyCode);
+            output.writeChar(keyChar);
+            output.writeBoolean(controlDown);
+            output.flush();
+        }
+    }
+
+    /**
+     * Sends a key release to the server
+     * @param keyCode the key code of the released key
+     * @throws IOException if sending fails
+     */
+    public void sendKeyReleased(int keyCode) throws IOException {
+        synchronized(output){
+            output.writeByte(Protocol.KEY_RELEASED);
+            output.writeInt(keyCode);
+            output.flush();
+        }
+    }
+
+    /**
+     * Makes the server save the changes to the document
+     * @throws IOException if sending fails
+     */
+    public void save() throws IOException {
+        synchronized(output){
+            output.writeByte(Protocol.SAVE);
+            output.flush();
+        }
+    }
+
+    /**
+     * Closes the connection after the server has processed all key events and saved all unsaved changes
+     * @throws IOException if closing fails
+     */
+    @Override
+    public void close() throws IOException {
+        try{
+            socket.shutdownOutput();
+            receiver.join();
+        } catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Consumes the {@link KeyEvent}
+     * @param e the {@link KeyEvent} that occurred
+     */
+    @Override
+    public void keyTyped(KeyEvent e) {
+        e.consume();
+    }
+
+    /**
+     * Sends the key press to the server and consumes the {@link KeyEvent}
+     * @param e the {@link KeyEvent} that occurred
+     */
+    @Override
+    public void keyPressed(KeyEvent e) {
+        try{
+            sendKeyPressed(e.getKeyCode(), e.getKeyChar(), e.isControlDown());
+        } catch(IOException exception){
+            exception.printStackTrace();
+        }
+        e.consume();
+    }
+
+    /**
+     * Sends the key release to the server
+     * @param e the {@link KeyEvent} that occurred
+     */
+    @Override
+    public void keyReleased(KeyEvent e) {
+        try{
+            sendKeyReleased(e.getKeyCode());
+        } catch(IOException exception){
+            exception.printStackTrace();
+        }
+    }
+
+    /**
+     * Plays the sounds sent by the server until the connection is closed
+     */
+    private void receiveSounds(){
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()))){
+            while(true){
+                byte type = input.readByte();
+                if(type != Protocol.SOUND){
+                    throw new IOException("Unknown message type " + type);
+                }
+                float sampleRate = input.readFloat();
+                int sampleSizeInBits = input.readInt();
+                int channels = input.readInt();
+                int length = input.readInt();
+                if(length < 0 || length > Protocol.MAX_SOUND_BYTES){
+                    throw new IOException("Invalid sound length " + length);
+                }
+                byte[] pcmData = new byte[length];
+                input.readFully(pcmData);
+                AudioFormat format = new AudioFormat(sampleRate, sampleSizeInBits, channels, true, false);
+                soundOutput.play(new AudioInputStream(new ByteArrayInputStream(pcmData), format,
+                                                      length / format.getFrameSize()));
+            }
+        } catch(EOFException e){
+            // the server closed the connection
+        } catch(IOException e){
+            if(!socket.isClosed()){
+                LOGGER.log(Level.WARNING, "Connection to server lost", e);
+            }
+        }
+    }
+}
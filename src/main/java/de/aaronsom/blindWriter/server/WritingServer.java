@@ -0,0 +1,302 @@
+package de.aaronsom.blindWriter.server;
+
+import de.aaronsom.blindWriter.sound.SoundManager;
+import de.aaronsom.blindWriter.util.DaemonThreadFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts many writing sessions in one JVM, e.g. for a classroom.
+ * Every {@link WritingClient} connected to the server gets its own {@link WritingSession} with its own
+ * document and FileSaver. All sessions share one decoded sound pack and a small pool of worker threads.
+ *
+ * All connections are accepted, read and written without blocking by a single selector thread,
+ * so the number of threads does not grow with the number of sessions. All processing happens on the worker pool.
+ * A document can only be open in one session at a time.
+ */
+public class WritingServer {
+    private static final Logger LOGGER = Logger.getLogger(WritingServer.class.getName());
+    /**
+     * The port the server listens on if none is given
+     */
+    public static final int DEFAULT_PORT = 47110;
+    /**
+     * Allowed document names, so clients cannot access files outside the documents directory
+     */
+    private static final Pattern DOCUMENT_NAME = Pattern.compile("[\\w-]{1,64}");
+
+    /**
+     * The directory containing the documents of all sessions
+     */
+    private final File documentsDirectory;
+    /**
+     * The sound manager shared by all sessions
+     */
+    private final SoundManager soundManager;
+    /**
+     * The worker pool shared by all sessions
+     */
+    private final ExecutorService workers;
+    /**
+     * All open sessions
+     */
+    private final Set<WritingSession> sessions;
+    /**
+     * The names of all documents open in a session, in lower case because file names on Windows ignore case
+     */
+    private final Set<String> openDocuments;
+    /**
+     * Tasks of other threads that have to run on the selector thread, e.g. sending sounds
+     */
+    private final Queue<Runnable> selectorTasks;
+    /**
+     * The channel accepting new connections, null until the server is started
+     */
+    private ServerSocketChannel serverChannel;
+    /**
+     * The selector of the server channel and all connections, null until the server is started
+     */
+    private Selector selector;
+    /**
+     * The thread accepting, reading and writing all connections, null until the server is started
+     */
+    private Thread selectorThread;
+    /**
+     * False once the selector thread has to stop
+     */
+    private volatile boolean running;
+
+    /**
+     * Constructs a new WritingServer
+     * @param documentsDirectory the directory containing the documents of all sessions
+     * @param soundManager the sound manager shared by all sessions
+     * @param workerThreads the number of threads processing the key events of all sessions
+     */
+    public WritingServer(File documentsDirectory, SoundManager soundManager, int workerThreads){
+        this.documentsDirectory = documentsDirectory;
+        this.soundManager = soundManager;
+        workers = Executors.newFixedThreadPool(workerThreads, new DaemonThreadFactory("session-worker"));
+        sessions = ConcurrentHashMap.newKeySet();
+        openDocuments = ConcurrentHashMap.newKeySet();
+        selectorTasks = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Starts a server on the local machine.
+     * @param args the documents directory and optionally the port, {@link #DEFAULT_PORT} if omitted
+     * @throws IOException if the port cannot be bound
+     */
+    public static void main(String args[]) throws IOException {
+        if(args.length < 1){
+            System.err.println("Usage: WritingServer <documents directory> [port]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+        WritingServer server = new WritingServer(new File(args[0]), new SoundManager(),
+                                                 Runtime.getRuntime().availableProcessors());
+        server.start(port);
+        LOGGER.info("Writing server listening on port " + server.getPort());
+    }
+
+    /**
+     * Starts accepting connections from the local machine in the background
+     * @param port the port to listen on, 0 for any free port
+     * @throws IOException if the port cannot be bound or the documents directory cannot be created
+     */
+    public void start(int port) throws IOException {
+        if(!documentsDirectory.isDirectory() && !documentsDirectory.mkdirs()){
+            throw new IOException("Cannot create " + documentsDirectory);
+        }
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 50);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new DaemonThreadFactory("session-selector").newThread(this::runSelector);
+        selectorThread.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort(){
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the number of open sessions
+     */
+    public int getSessionCount(){
+        return sessions.size();
+    }
+
+    /**
+     * Stops accepting connections, closes all sessions and waits until their unsaved changes are saved.
+     * Key events the sessions have not received yet are lost. Does nothing if the server has already been stopped.
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stop() throws InterruptedException {
+        if(!running){
+            return;
+        }
+        // closed on the selector thread, so no session is accepted once this has finished
+        CountDownLatch serverChannelClosed = new CountDownLatch(1);
+        runOnSelector(() -> {
+            try{
+                serverChannel.close();
+            } catch(IOException e){
+                LOGGER.log(Level.FINE, "Could not close server channel", e);
+            }
+            serverChannelClosed.countDown();
+        });
+        serverChannelClosed.await();
+        for(WritingSession session : sessions){
+            session.close();
+        }
+        for(WritingSession session : sessions){
+            session.awaitClosed();
+        }
+        running = false;
+        selector.wakeup();
+        selectorThread.join();
+        try{
+            selector.close();
+        } catch(IOException e){
+            LOGGER.log(Level.FINE, "Could not close selector", e);
+        }
+        workers.shutdown();
+        workers.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the file of a document
+     * @param name the name of the document without extension
+     * @return the file of the document or null if the name is not allowed
+     */
+    File getDocumentFile(String name){
+        if(!DOCUMENT_NAME.matcher(name).matches()){
+            return null;
+        }
+        return new File(documentsDirectory, name + ".txt");
+    }
+
+    /**
+     * Marks a document as open in a session
+     * @param name the name of the document without extension
+     * @return false if the document is already open in another session
+     */
+    boolean openDocument(String name){
+        return openDocuments.add(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Marks a document as no longer open, so another session can open it
+     * @param name the name of a document opened by {@link #openDocument(String)}
+     */
+    void closeDocument(String name){
+        openDocuments.remove(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Removes a session whose connection has been closed
+     * @param session the closed session
+     */
+    void sessionClosed(WritingSession session){
+        sessions.remove(session);
+    }
+
+    /**
+     * Runs a task on the selector thread, which is the only thread using the channels of the sessions
+     * @param task the task to run
+     */
+    void runOnSelector(Runnable task){
+        selectorTasks.add(task);
+        selector.wakeup();
+    }
+
+    /**
+     * Accepts new connections, reads the key events of all sessions and sends their sounds until the server is stopped,
+     * then closes the remaining connections
+     */
+    private void runSelector(){
+        while(running){
+            try{
+                selector.select();
+            } catch(IOException e){
+                LOGGER.log(Level.SEVERE, "Selector failed, no connection is served anymore", e);
+                return;
+            }
+            Runnable task;
+            while((task = selectorTasks.poll()) != null){
+                task.run();
+            }
+            Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+            while(selectedKeys.hasNext()){
+                SelectionKey key = selectedKeys.next();
+                selectedKeys.remove();
+                if(!key.isValid()){
+                    continue;
+                }
+                if(key.isAcceptable()){
+                    acceptConnection();
+                    continue;
+                }
+                WritingSession session = (WritingSession) key.attachment();
+                if(key.isReadable()){
+                    session.read();
+                }
+                if(key.isValid() && key.isWritable()){
+                    session.flush();
+                }
+            }
+        }
+        // connections whose sessions have finished may still wait for their clients to close them
+        for(SelectionKey key : selector.keys()){
+            try{
+                key.channel().close();
+            } catch(IOException e){
+                LOGGER.log(Level.FINE, "Could not close connection", e);
+            }
+        }
+    }
+
+    /**
+     * Starts a session for a new connection
+     */
+    private void acceptConnection(){
+        try{
+            SocketChannel channel = serverChannel.accept();
+            if(channel == null){
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            WritingSession session = new WritingSession(channel, this, workers, soundManager);
+            sessions.add(session);
+            session.register(selector);
+        } catch(IOException e){
+            LOGGER.log(Level.WARNING, "Could not accept connection", e);
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package de.aaronsom.blindWriter.server;
+
+import de.aaronsom.blindWriter.file.FileSaver;
+import de.aaronsom.blindWriter.file.TxtFileSaver;
+import de.aaronsom.blindWriter.sound.SoundManager;
+import de.aaronsom.blindWriter.writing.BlindWriterKeyListener;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.PlainDocument;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One writing session of a {@link WritingServer}, connected to one {@link WritingClient}.
+ * The selector thread of the server reads the key events of the client without blocking and the session hands
+ * them to a {@link BlindWriterKeyListener} on a {@link SerialExecutor}, so all sessions share the worker pool
+ * of the server. The sounds of the key presses are queued and written by the selector thread whenever the
+ * connection accepts more data, so a client that reads slowly never blocks a worker.
+ * If it falls behind, its stalest sounds are dropped.
+ */
+class WritingSession {
+    private static final Logger LOGGER = Logger.getLogger(WritingSession.class.getName());
+    /**
+     * The number of sounds that may wait to be sent before the stalest one is dropped
+     */
+    private static final int OUTBOUND_CAPACITY = 8;
+    /**
+     * The number of bytes of a SOUND message before the PCM data
+     */
+    private static final int SOUND_HEADER_BYTES = 17;
+    /**
+     * The size of the buffer for received messages, longer messages are invalid
+     */
+    private static final int INBOUND_CAPACITY = 1024;
+    /**
+     * Queued after the last sound of the session, makes the selector thread close the connection
+     */
+    private static final byte[] END_OF_SOUNDS = new byte[0];
+
+    /**
+     * The connection to the client, only read and written by the selector thread
+     */
+    private final SocketChannel channel;
+    /**
+     * The server this session belongs to
+     */
+    private final WritingServer server;
+    /**
+     * Runs all key events and edits of this session one after the other on the worker pool
+     */
+    private final Executor executor;
+    /**
+     * The sound manager shared by all sessions, sounds are played through a copy sending them to the client
+     */
+    private final SoundManager soundManager;
+    /**
+     * The registration of the channel with the selector of the server, null until registered
+     */
+    private SelectionKey key;
+    /**
+     * The received bytes that do not form a complete message yet, only used by the selector thread
+     */
+    private final ByteBuffer inbound;
+    /**
+     * True once the OPEN message has been received, only used by the selector thread
+     */
+    private boolean openReceived;
+    /**
+     * True once the session stopped handling key events, the rest of the input is discarded then
+     */
+    private final AtomicBoolean inputEnded;
+    /**
+     * True once the client has closed its side of the connection, only used by the selector thread
+     */
+    private boolean inputClosed;
+    /**
+     * True once all sounds have been sent and the output has been shut down, only used by the selector thread
+     */
+    private boolean outputClosed;
+    /**
+     * The SOUND messages waiting to be sent, producers synchronize on it
+     */
+    private final Queue<byte[]> outbound;
+    /**
+     * True once {@link #END_OF_SOUNDS} has been queued, guarded by outbound
+     */
+    private boolean finished;
+    /**
+     * True while sending the queued messages is scheduled on the selector thread
+     */
+    private final AtomicBoolean flushScheduled;
+    /**
+     * The message the selector thread is sending or null
+     */
+    private ByteBuffer sending;
+    /**
+     * False once sending failed, only used by the selector thread
+     */
+    private boolean connected;
+    /**
+     * The name of the document of this session, null until the document is opened
+     */
+    private String documentName;
+    /**
+     * The FileSaver for the document of this session, null until the document is opened
+     */
+    private FileSaver fileSaver;
+    /**
+     * The key listener editing the document, null until the document is opened
+     */
+    private BlindWriterKeyListener keyListener;
+    /**
+     * Released when the session has saved its document and closed its connection
+     */
+    private final CountDownLatch closed;
+
+    /**
+     * Constructs a new WritingSession
+     * @param channel the non-blocking connection to the client
+     * @param server the server this session belongs to
+     * @param workers the worker pool shared by all sessions
+     * @param soundManager the sound manager shared by all sessions
+     */
+    WritingSession(SocketChannel channel, WritingServer server, Executor workers, SoundManager soundManager){
+        this.channel = channel;
+        this.server = server;
+        this.soundManager = soundManager;
+        executor = new SerialExecutor(workers);
+        inbound = ByteBuffer.allocate(INBOUND_CAPACITY);
+        inputEnded = new AtomicBoolean();
+        outbound = new ArrayDeque<>(OUTBOUND_CAPACITY);
+        flushScheduled = new AtomicBoolean();
+        connected = true;
+        closed = new CountDownLatch(1);
+    }
+
+    /**
+     * Registers the connection with the selector of the server to read the messages of the client
+     * @param selector the selector of the server, must be called on its thread
+     * @throws ClosedChannelException if the connection has already been closed
+     */
+    void register(Selector selector) throws ClosedChannelException {
+        key = channel.register(selector, SelectionKey.OP_READ, this);
+    }
+
+    /**
+     * Reads the available messages of the client, called by the selector thread.
+     * The first message must open a document. When the client stops sending or sends an invalid message,
+     * all received key events are processed, unsaved changes are saved and then the connection is closed.
+     */
+    void read(){
+        boolean open;
+        try{
+            open = channel.read(inbound) != -1;
+        } catch(IOException e){
+            LOGGER.log(Level.FINE, "Connection to client lost", e);
+            open = false;
+        }
+        if(inputEnded.get()){
+            inbound.clear();
+        } else {
+            inbound.flip();
+            boolean valid = handleMessages();
+            inbound.compact();
+            if(!valid){
+                inbound.clear();
+                endInput();
+            }
+        }
+        if(!open){
+            inputClosed = true;
+            setInterest(SelectionKey.OP_READ, false);
+            endInput();
+            if(outputClosed){
+                disconnect();
+            }
+        }
+    }
+
+    /**
+     * Stops handling key events. Once all received key events are processed, unsaved changes are saved, the document
+     * is released and the connection is closed after the queued sounds. Only the first call has an effect.
+     */
+    private void endInput(){
+        if(!inputEnded.compareAndSet(false, true)){
+            return;
+        }
+        executor.execute(() -> {
+            if(fileSaver != null){
+                if(fileSaver.hasUnsavedChanges()){
+                    fileSaver.save();
+                }
+                server.closeDocument(documentName);
+            }
+            server.sessionClosed(this);
+            enqueue(END_OF_SOUNDS);
+        });
+    }
+
+    /**
+     * Waits until the session has saved its document and closed its connection
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void awaitClosed() throws InterruptedException {
+        closed.await();
+    }
+
+    /**
+     * Closes the connection to the client. Key events that have not been received yet are lost.
+     */
+    void close(){
+        disconnect();
+        endInput();
+    }
+
+    /**
+     * Closes the channel to the client
+     */
+    private void disconnect(){
+        try{
+            channel.close();
+        } catch(IOException e){
+            LOGGER.log(Level.FINE, "Could not close connection", e);
+        }
+    }
+
+    /**
+     * Hands all complete messages in the inbound buffer to the key listener
+     * @return false if the client sent an invalid message
+     */
+    private boolean handleMessages(){
+        while(inbound.hasRemaining()){
+            byte type = inbound.get(inbound.position());
+            int length = getMessageLength(type);
+            if(length < 0 || length > inbound.capacity()){
+                return false;
+            }
+            if(inbound.remaining() < length){
+                return true;
+            }
+            inbound.get();
+            if(type == Protocol.OPEN){
+                byte[] name = new byte[length - 1];
+                inbound.get(name);
+                try{
+                    String documentName = new DataInputStream(new ByteArrayInputStream(name)).readUTF();
+                    executor.execute(() -> open(documentName));
+                } catch(IOException e){
+                    return false;
+                }
+            } else if(type == Protocol.KEY_PRESSED){
+                int keyCode = inbound.getInt();
+                char keyChar = inbound.getChar();
+                boolean controlDown = inbound.get() != 0;
+                process(listener -> listener.keyPressed(keyCode, keyChar, controlDown));
+            } else if(type == Protocol.KEY_RELEASED){
+                int keyCode = inbound.getInt();
+                process(listener -> listener.keyReleased(keyCode));
+            } else {
+                process(listener -> fileSaver.save());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the length of the next message in the inbound buffer, the first message must be OPEN
+     * @param type the type of the message
+     * @return the length including the type or -1 if the message is not allowed here.
+     *         For OPEN, the length may only be a lower bound until the length of the name has been received.
+     */
+    private int getMessageLength(byte type){
+        if(!openReceived){
+            if(type != Protocol.OPEN){
+                return -1;
+            }
+            if(inbound.remaining() < 3){
+                return 3;
+            }
+            int length = 3 + (inbound.getShort(inbound.position() + 1) & 0xFFFF);
+            openReceived = inbound.remaining() >= length;
+            return length;
+        }
+        switch(type){
+            case Protocol.KEY_PRESSED:
+                return 8;
+            case Protocol.KEY_RELEASED:
+                return 5;
+            case Protocol.SAVE:
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Hands an event to the key listener on the serial executor, unless the document could not be opened
+     */
+    private void process(Consumer<BlindWriterKeyListener> event){
+        executor.execute(() -> {
+            if(keyListener != null){
+                event.accept(keyListener);
+            }
+        });
+    }
+
+    /**
+     * Sets up the document, its FileSaver and the key listener. If the name is not allowed or the document is
+     * already open in another session, the session is closed.
+     * @param name the name of the document sent by the client
+     */
+    private void open(String name){
+        File file = server.getDocumentFile(name);
+        if(file == null){
+            endInput();
+            return;
+        }
+        if(!server.openDocument(name)){
+            LOGGER.info("Document " + name + " is already open in another session");
+            endInput();
+            return;
+        }
+        Document document = new PlainDocument();
+        try{
+            if(!file.createNewFile()){
+                document.insertString(0, new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8), null);
+            }
+        } catch(IOException e){
+            server.closeDocument(name);
+            LOGGER.log(Level.WARNING, "Could not open document " + name, e);
+            endInput();
+            return;
+        } catch(BadLocationException e){
+            throw new IllegalStateException(e);
+        }
+        documentName = name;
+        fileSaver = new TxtFileSaver(file);
+        // key events already run on the serial executor, so edits are made right away instead of queued behind them
+        keyListener = new BlindWriterKeyListener(document, fileSaver, soundManager.withOutput(this::sendSound),
+                                                 Runnable::run);
+    }
+
+    /**
+     * Queues a sound to be sent to the client
+     */
+    private void sendSound(AudioInputStream pcm){
+        AudioFormat format = pcm.getFormat();
+        long length = pcm.getFrameLength() * format.getFrameSize();
+        if(length > Protocol.MAX_SOUND_BYTES){
+            LOGGER.warning("Sound too long to send: " + length + " bytes");
+            return;
+        }
+        ByteArrayOutputStream pcmData = new ByteArrayOutputStream((int) length);
+        ByteArrayOutputStream message = new ByteArrayOutputStream(SOUND_HEADER_BYTES + (int) length);
+        try{
+            byte[] chunk = new byte[4096];
+            int read;
+            while((read = pcm.read(chunk)) != -1){
+                pcmData.write(chunk, 0, read);
+            }
+            DataOutputStream data = new DataOutputStream(message);
+            data.writeByte(Protocol.SOUND);
+            data.writeFloat(format.getSampleRate());
+            data.writeInt(format.getSampleSizeInBits());
+            data.writeInt(format.getChannels());
+            data.writeInt(pcmData.size());
+            pcmData.writeTo(data);
+        } catch(IOException e){
+            LOGGER.log(Level.WARNING, "Could not read sound", e);
+            return;
+        }
+        enqueue(message.toByteArray());
+    }
+
+    /**
+     * Queues a message and lets the selector thread send it. If the queue is full, the stalest sounds are dropped.
+     * Nothing is queued after {@link #END_OF_SOUNDS}.
+     */
+    private void enqueue(byte[] message){
+        synchronized(outbound){
+            if(finished){
+                return;
+            }
+            finished = message == END_OF_SOUNDS;
+            if(outbound.size() == OUTBOUND_CAPACITY){
+                outbound.poll();
+                LOGGER.fine("Dropped a sound, the client reads too slowly");
+            }
+            outbound.add(message);
+        }
+        if(flushScheduled.compareAndSet(false, true)){
+            server.runOnSelector(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Sends the queued messages until the connection does not accept more data, called by the selector thread.
+     * The rest is sent once the connection is writable again. After {@link #END_OF_SOUNDS}, the connection is closed.
+     * If sending fails, the connection is closed and the remaining sounds are discarded.
+     */
+    void flush(){
+        while(true){
+            if(sending == null){
+                byte[] message;
+                synchronized(outbound){
+                    message = outbound.poll();
+                }
+                if(message == null){
+                    setInterest(SelectionKey.OP_WRITE, false);
+                    return;
+                }
+                if(message == END_OF_SOUNDS){
+                    closeOutput();
+                    closed.countDown();
+                    return;
+                }
+                sending = ByteBuffer.wrap(message);
+            }
+            if(connected){
+                try{
+                    channel.write(sending);
+                } catch(IOException e){
+                    LOGGER.log(Level.FINE, "Could not send sound to client", e);
+                    connected = false;
+                    disconnect();
+                }
+                if(connected && sending.hasRemaining()){
+                    setInterest(SelectionKey.OP_WRITE, true);
+                    return;
+                }
+            }
+            sending = null;
+        }
+    }
+
+    /**
+     * Closes the connection if the client has closed its side already. Otherwise only the output is shut down,
+     * so the client receives the end of the sounds, and its remaining key events are discarded until it closes
+     * the connection. Closing right away would reset the connection while the client is still sending.
+     */
+    private void closeOutput(){
+        outputClosed = true;
+        if(inputClosed || !connected){
+            disconnect();
+            return;
+        }
+        try{
+            channel.shutdownOutput();
+        } catch(IOException e){
+            LOGGER.log(Level.FINE, "Could not close connection", e);
+            disconnect();
+        }
+    }
+
+    /**
+     * Adds or removes an operation the selector waits for, unless the connection has been closed
+     */
+    private void setInterest(int operation, boolean interested){
+        if(key != null && key.isValid()){
+            key.interestOps(interested ? key.interestOps() | operation : key.interestOps() & ~operation);
+        }
+    }
+}
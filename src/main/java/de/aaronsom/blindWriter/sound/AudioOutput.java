@@ -0,0 +1,276 @@
+package de.aaronsom.blindWriter.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+
+/**
+ * Plays PCM data through Java Sound lines with a configurable buffer size.
+ * Lines are opened and started once per format and kept open, so playing a sound only writes it into
+ * an idle line, which plays it as soon as the data already in its buffer has been played.
+ * Sounds played at the same time get a line each and are mixed by the system.
+ * A smaller buffer lowers the delay between a key press and its sound, but the line runs empty (underruns)
+ * if the buffer is not refilled in time. The buffer size is persisted, chosen by a {@link LatencyCalibrator}
+ * and increased during playback whenever underruns appear.
+ */
+public class AudioOutput implements SoundOutput {
+    private static final Logger LOGGER = Logger.getLogger(AudioOutput.class.getName());
+    /**
+     * Buffer size used until the output has been calibrated
+     */
+    public static final int DEFAULT_BUFFER_MILLIS = 100;
+    /**
+     * The largest buffer size the output backs off to
+     */
+    public static final int MAX_BUFFER_MILLIS = 500;
+    /**
+     * The number of underruns after which the buffer size is doubled
+     */
+    static final int UNDERRUNS_BEFORE_BACK_OFF = 3;
+    /**
+     * The preference key of the buffer size
+     */
+    private static final String BUFFER_MILLIS_KEY = "lineBufferMillis";
+
+    /**
+     * The preferences in which the buffer size is persisted
+     */
+    private final Preferences preferences;
+    /**
+     * The buffer size of newly opened lines in milliseconds
+     */
+    private volatile int bufferMillis;
+    /**
+     * The underruns since the buffer size was last changed
+     */
+    private final AtomicInteger recentUnderruns;
+    /**
+     * All underruns since the output was created
+     */
+    private final AtomicInteger totalUnderruns;
+    /**
+     * The started lines that are not playing a sound right now by their format, see {@link #formatKey(AudioFormat)}.
+     * All accesses are synchronized on the map.
+     */
+    private final Map<String, Deque<OpenLine>> idleLines;
+
+    /**
+     * Constructs a new AudioOutput with the buffer size persisted in preferences
+     * @param preferences the preferences in which the buffer size is persisted
+     */
+    public AudioOutput(Preferences preferences){
+        this.preferences = preferences;
+        bufferMillis = preferences.getInt(BUFFER_MILLIS_KEY, DEFAULT_BUFFER_MILLIS);
+        recentUnderruns = new AtomicInteger();
+        totalUnderruns = new AtomicInteger();
+        idleLines = new HashMap<>();
+    }
+
+    /**
+     * Creates an AudioOutput that persists its buffer size in the user preferences of this application
+     * @return the created AudioOutput
+     */
+    public static AudioOutput createDefault(){
+        return new AudioOutput(Preferences.userNodeForPackage(AudioOutput.class));
+    }
+
+    /**
+     * Indicates if a buffer size has been persisted by calibration or back off
+     * @return true if the output has been calibrated
+     */
+    public boolean isCalibrated(){
+        return preferences.get(BUFFER_MILLIS_KEY, null) != null;
+    }
+
+    /**
+     * @return the buffer size of the lines in milliseconds
+     */
+    public int getBufferMillis(){
+        return bufferMillis;
+    }
+
+    /**
+     * Sets and persists the buffer size of the lines. Lines with another buffer size are closed
+     * once they have finished their current sound and are replaced by new ones.
+     * @param bufferMillis the buffer size in milliseconds
+     */
+    public void setBufferMillis(int bufferMillis){
+        this.bufferMillis = bufferMillis;
+        recentUnderruns.set(0);
+        preferences.putInt(BUFFER_MILLIS_KEY, bufferMillis);
+    }
+
+    /**
+     * @return the number of underruns since the output was created
+     */
+    public int getTotalUnderruns(){
+        return totalUnderruns.get();
+    }
+
+    /**
+     * Opens and starts a line for the format with a buffer of the indicated size
+     * @param format the format of the data to play
+     * @param bufferMillis the buffer size in milliseconds
+     * @return the started line
+     * @throws LineUnavailableException if no line is available for the format
+     */
+    SourceDataLine openLine(AudioFormat format, int bufferMillis) throws LineUnavailableException {
+        int frameSize = format.getFrameSize();
+        int bufferFrames = Math.max(1, (int) (format.getFrameRate() * bufferMillis / 1000));
+        SourceDataLine line = AudioSystem.getSourceDataLine(format);
+        line.open(format, bufferFrames * frameSize);
+        line.start();
+        return line;
+    }
+
+    /**
+     * Writes the data to the line in chunks of half its buffer size and counts how often the buffer
+     * had run empty before the next chunk was written. Returns as soon as all data has been written,
+     * the end of the data is still in the buffer of the line then.
+     * @param line a started line
+     * @param pcm the PCM data in the format of the line
+     * @return the number of underruns
+     * @throws IOException if the data cannot be read
+     */
+    static int write(SourceDataLine line, InputStream pcm) throws IOException {
+        int bufferSize = line.getBufferSize();
+        int frameSize = line.getFormat().getFrameSize();
+        byte[] chunk = new byte[Math.max(frameSize, bufferSize / 2 / frameSize * frameSize)];
+        int underruns = 0;
+        boolean started = false;
+        int length;
+        while((length = pcm.read(chunk)) != -1){
+            if(started && line.available() >= bufferSize){
+                underruns++;
+            }
+            int offset = 0;
+            while(offset < length){
+                offset += line.write(chunk, offset, length - offset);
+            }
+            started = true;
+        }
+        return underruns;
+    }
+
+    /**
+     * Plays the data through an idle line of its format and waits until it has been written into the line.
+     * If underruns occur, they are reported for the back off.
+     * If no audio line for the format is available or if other problems occur, nothing will happen
+     * @param pcm the PCM data to play and its format
+     */
+    @Override
+    public void play(AudioInputStream pcm){
+        OpenLine openLine;
+        try {
+            openLine = acquireLine(pcm.getFormat());
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            e.printStackTrace();
+            return;
+        }
+        boolean reusable = false;
+        try {
+            int underruns = write(openLine.line, pcm);
+            for(int i = 0; i < underruns; i++){
+                reportUnderrun(openLine.bufferMillis);
+            }
+            reusable = true;
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            releaseLine(openLine, reusable);
+        }
+    }
+
+    /**
+     * Takes an idle line for the format with the current buffer size or opens a new one if there is none.
+     * Idle lines with an old buffer size are closed.
+     * @param format the format of the data to play
+     * @return the line, which is not idle until it is released
+     * @throws LineUnavailableException if no line is available for the format
+     */
+    private OpenLine acquireLine(AudioFormat format) throws LineUnavailableException {
+        int lineBufferMillis = bufferMillis;
+        synchronized(idleLines){
+            Deque<OpenLine> lines = idleLines.get(formatKey(format));
+            while(lines != null && !lines.isEmpty()){
+                OpenLine openLine = lines.pop();
+                if(openLine.bufferMillis == lineBufferMillis){
+                    return openLine;
+                }
+                openLine.line.close();
+            }
+        }
+        return new OpenLine(openLine(format, lineBufferMillis), format, lineBufferMillis);
+    }
+
+    /**
+     * Makes a line idle again, so the next sound of its format can be written into it
+     * @param openLine the line that has finished writing a sound
+     * @param reusable false if writing failed, the line is closed then
+     */
+    private void releaseLine(OpenLine openLine, boolean reusable){
+        if(reusable && openLine.bufferMillis == bufferMillis){
+            synchronized(idleLines){
+                idleLines.computeIfAbsent(formatKey(openLine.format), key -> new ArrayDeque<>()).push(openLine);
+            }
+        } else {
+            openLine.line.close();
+        }
+    }
+
+    /**
+     * Formats are compared by their description, because {@link AudioFormat} does not implement equals
+     * @param format a format
+     * @return a key that is equal for equal formats
+     */
+    private static String formatKey(AudioFormat format){
+        return format.toString();
+    }
+
+    /**
+     * Counts an underrun of a line with the indicated buffer size. After {@link #UNDERRUNS_BEFORE_BACK_OFF}
+     * underruns, the buffer size is doubled up to {@link #MAX_BUFFER_MILLIS} and persisted.
+     * Underruns of lines opened before the last change of the buffer size are ignored.
+     * @param lineBufferMillis the buffer size of the line that ran empty
+     */
+    void reportUnderrun(int lineBufferMillis){
+        totalUnderruns.incrementAndGet();
+        if(lineBufferMillis != bufferMillis || recentUnderruns.incrementAndGet() < UNDERRUNS_BEFORE_BACK_OFF){
+            return;
+        }
+        synchronized(this){
+            if(lineBufferMillis == bufferMillis && bufferMillis < MAX_BUFFER_MILLIS){
+                int increased = Math.min(MAX_BUFFER_MILLIS, 2 * bufferMillis);
+                LOGGER.warning(recentUnderruns.get() + " underruns with " + bufferMillis + " ms line buffer, backing off to "
+                               + increased + " ms (" + totalUnderruns.get() + " underruns in total)");
+                setBufferMillis(increased);
+            }
+        }
+    }
+
+    /**
+     * A started line and the format and buffer size it was opened with
+     */
+    private static class OpenLine {
+        final SourceDataLine line;
+        final AudioFormat format;
+        final int bufferMillis;
+
+        OpenLine(SourceDataLine line, AudioFormat format, int bufferMillis){
+            this.line = line;
+            this.format = format;
+            this.bufferMillis = bufferMillis;
+        }
+    }
+}
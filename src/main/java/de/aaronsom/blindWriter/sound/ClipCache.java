@@ -0,0 +1,257 @@
+package de.aaronsom.blindWriter.sound;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.prefs.Preferences;
+
+/**
+ * Holds the decoded clips of all sound packs outside of the Java heap, so they neither grow the heap
+ * nor lengthen garbage collection pauses.
+ * The clips are stored in a {@link ClipEncoding} and expanded while they are played.
+ * If the stored clips exceed the memory budget, the least recently played ones are evicted.
+ * The next time an evicted clip is played, it is decoded again in the background and silence is played instead,
+ * so decoding never delays the thread that plays the sound.
+ * When a sound pack is replaced, its clips are removed from the cache.
+ * Evicted and removed buffers are freed by the garbage collector once no playback uses them anymore.
+ */
+public class ClipCache {
+    private static final Logger LOGGER = Logger.getLogger(ClipCache.class.getName());
+    /**
+     * The memory budget used if none is configured
+     */
+    public static final long DEFAULT_BUDGET_BYTES = 8 * 1024 * 1024;
+    /**
+     * The preference key of the encoding
+     */
+    private static final String ENCODING_KEY = "clipEncoding";
+    /**
+     * The preference key of the memory budget
+     */
+    private static final String BUDGET_KEY = "clipCacheBudgetBytes";
+
+    /**
+     * The largest number of bytes all stored clips may take together
+     */
+    private final long budgetBytes;
+    /**
+     * The encoding of all stored clips
+     */
+    private final ClipEncoding encoding;
+    /**
+     * All stored clips, the least recently played first
+     */
+    private final LinkedHashMap<Slot, StoredClip> storedClips;
+    /**
+     * The number of bytes all stored clips take together
+     */
+    private long storedBytes;
+    /**
+     * Decodes evicted clips again, on the playing thread until another executor is set
+     */
+    private volatile Executor decoder;
+
+    /**
+     * Constructs a new ClipCache
+     * @param budgetBytes the largest number of bytes all stored clips may take together
+     * @param encoding the encoding of all stored clips
+     */
+    public ClipCache(long budgetBytes, ClipEncoding encoding){
+        this.budgetBytes = budgetBytes;
+        this.encoding = encoding;
+        storedClips = new LinkedHashMap<>(64, 0.75f, true);
+        decoder = Runnable::run;
+    }
+
+    /**
+     * Creates a ClipCache with the encoding and memory budget configured in the user preferences of this
+     * application, uncompressed PCM and {@link #DEFAULT_BUDGET_BYTES} if they are not configured
+     * @return the created ClipCache
+     */
+    public static ClipCache createDefault(){
+        Preferences preferences = Preferences.userNodeForPackage(ClipCache.class);
+        ClipEncoding encoding;
+        try{
+            encoding = ClipEncoding.valueOf(preferences.get(ENCODING_KEY, ClipEncoding.PCM_16.name()));
+        } catch(IllegalArgumentException e){
+            LOGGER.log(Level.WARNING, "Unknown clip encoding, using " + ClipEncoding.PCM_16, e);
+            encoding = ClipEncoding.PCM_16;
+        }
+        return new ClipCache(preferences.getLong(BUDGET_KEY, DEFAULT_BUDGET_BYTES), encoding);
+    }
+
+    /**
+     * @return the encoding of all stored clips
+     */
+    public ClipEncoding getEncoding(){
+        return encoding;
+    }
+
+    /**
+     * @return the largest number of bytes all stored clips may take together
+     */
+    public long getBudgetBytes(){
+        return budgetBytes;
+    }
+
+    /**
+     * Sets the executor that decodes evicted clips again, e.g. the one loading the sound packs
+     * @param decoder the executor that decodes evicted clips again
+     */
+    public void setDecoder(Executor decoder){
+        this.decoder = decoder;
+    }
+
+    /**
+     * @return the number of bytes all stored clips take together outside of the heap
+     */
+    public synchronized long getStoredBytes(){
+        return storedBytes;
+    }
+
+    /**
+     * Stores a decoded clip
+     * @param name the name of the clip for reporting
+     * @param clip the decoded clip
+     * @param loader decodes the clip again after it has been evicted, returns null if that fails
+     * @return the slot through which the clip is played
+     */
+    Slot add(String name, SoundClip clip, Callable<SoundClip> loader){
+        Slot slot = new Slot(name, loader, clip.getSamples().length * 2L);
+        store(slot, StoredClip.encode(clip, encoding));
+        return slot;
+    }
+
+    /**
+     * Returns a stored clip and marks it as recently played. If the clip has been evicted,
+     * it is decoded and stored again by the decoder, see {@link #setDecoder(Executor)}.
+     * @param slot the slot of the clip
+     * @return the stored clip or null if it has been removed or evicted and has not been decoded again yet
+     */
+    StoredClip get(Slot slot){
+        synchronized(this){
+            StoredClip storedClip = storedClips.get(slot);
+            if(storedClip != null || slot.removed || slot.decoding){
+                return storedClip;
+            }
+            slot.decoding = true;
+        }
+        decoder.execute(() -> decode(slot));
+        synchronized(this){
+            return storedClips.get(slot);
+        }
+    }
+
+    /**
+     * Decodes an evicted clip and stores it again, unless it has been removed in the meantime
+     * @param slot the slot of the evicted clip
+     */
+    private void decode(Slot slot){
+        try{
+            SoundClip clip = slot.loader.call();
+            if(clip != null){
+                LOGGER.fine("Decoded evicted clip " + slot.name + " again");
+                store(slot, StoredClip.encode(clip, encoding));
+            }
+        } catch(Exception e){
+            LOGGER.log(Level.WARNING, "Could not decode evicted clip " + slot.name, e);
+        } finally {
+            synchronized(this){
+                slot.decoding = false;
+            }
+        }
+    }
+
+    /**
+     * Removes a clip from the cache, e.g. because its sound pack has been replaced.
+     * Playbacks that already use the clip finish normally, the clip is never decoded again.
+     * @param slot the slot of the clip
+     */
+    synchronized void remove(Slot slot){
+        slot.removed = true;
+        if(storedClips.remove(slot) != null){
+            storedBytes -= slot.storedBytes;
+            slot.storedBytes = 0;
+        }
+    }
+
+    /**
+     * Returns the number of bytes a clip takes while it is stored, without marking it as recently played
+     * @param slot the slot of the clip
+     * @return the size of the clip outside of the heap or 0 if it has been evicted
+     */
+    synchronized long getStoredBytes(Slot slot){
+        return slot.storedBytes;
+    }
+
+    /**
+     * Adds a clip to the stored clips and evicts the least recently played ones until the budget is kept.
+     * The added clip itself is never evicted, even if it exceeds the budget on its own.
+     * A clip whose slot has been removed while it was decoded is not stored.
+     */
+    private synchronized void store(Slot slot, StoredClip storedClip){
+        if(slot.removed){
+            return;
+        }
+        storedClips.put(slot, storedClip);
+        storedBytes += storedClip.getSizeBytes() - slot.storedBytes;
+        slot.storedBytes = storedClip.getSizeBytes();
+        Iterator<Map.Entry<Slot, StoredClip>> iterator = storedClips.entrySet().iterator();
+        while(storedBytes > budgetBytes && iterator.hasNext()){
+            Map.Entry<Slot, StoredClip> eldest = iterator.next();
+            if(eldest.getKey() != slot){
+                iterator.remove();
+                storedBytes -= eldest.getValue().getSizeBytes();
+                eldest.getKey().storedBytes = 0;
+                LOGGER.fine("Evicted clip " + eldest.getKey().name + " to keep the budget of " + budgetBytes + " bytes");
+            }
+        }
+    }
+
+    /**
+     * The place of one clip in the cache, which stays valid while the clip is evicted and decoded again
+     */
+    static final class Slot {
+        /**
+         * The name of the clip for reporting
+         */
+        private final String name;
+        /**
+         * Decodes the clip again after it has been evicted
+         */
+        private final Callable<SoundClip> loader;
+        /**
+         * The number of bytes the clip takes as 16 bit PCM
+         */
+        private final long pcmBytes;
+        /**
+         * True once the clip has been removed from the cache, guarded by the cache
+         */
+        private boolean removed;
+        /**
+         * True while the evicted clip is decoded again, guarded by the cache
+         */
+        private boolean decoding;
+        /**
+         * The number of bytes the clip takes while it is stored, 0 while it is not stored, guarded by the cache
+         */
+        private long storedBytes;
+
+        private Slot(String name, Callable<SoundClip> loader, long pcmBytes){
+            this.name = name;
+            this.loader = loader;
+            this.pcmBytes = pcmBytes;
+        }
+
+        /**
+         * @return the number of bytes the clip takes as 16 bit PCM
+         */
+        long getPcmBytes(){
+            return pcmBytes;
+        }
+    }
+}
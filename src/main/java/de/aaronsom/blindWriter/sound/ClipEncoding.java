@@ -0,0 +1,245 @@
+package de.aaronsom.blindWriter.sound;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The encodings in which a {@link ClipCache} can store clips.
+ * All encodings are expanded back to signed 16 bit little endian PCM while a clip is played,
+ * a few samples at a time, so no expanded copy of a clip is ever held in memory.
+ */
+public enum ClipEncoding {
+    /**
+     * Uncompressed signed 16 bit little endian PCM, 2 bytes per sample
+     */
+    PCM_16 {
+        @Override
+        int getEncodedSize(int sampleCount){
+            return 2 * sampleCount;
+        }
+
+        @Override
+        void encode(short[] samples, int channels, ByteBuffer target){
+            for(int i = 0; i < samples.length; i++){
+                target.put(2*i, (byte) samples[i]);
+                target.put(2*i+1, (byte) (samples[i] >> 8));
+            }
+        }
+
+        @Override
+        void expand(ByteBuffer source, int channels, int firstSample, int sampleCount,
+                    byte[] target, int offset, int[] state){
+            for(int i = 0; i < 2*sampleCount; i++){
+                target[offset+i] = source.get(2*firstSample + i);
+            }
+        }
+    },
+    /**
+     * G.711 µ-law, 1 byte per sample with a logarithmic scale that keeps quiet parts precise
+     */
+    MU_LAW {
+        @Override
+        int getEncodedSize(int sampleCount){
+            return sampleCount;
+        }
+
+        @Override
+        void encode(short[] samples, int channels, ByteBuffer target){
+            for(int i = 0; i < samples.length; i++){
+                target.put(i, MuLaw.encode(samples[i]));
+            }
+        }
+
+        @Override
+        void expand(ByteBuffer source, int channels, int firstSample, int sampleCount,
+                    byte[] target, int offset, int[] state){
+            for(int i = 0; i < sampleCount; i++){
+                short sample = MuLaw.DECODED[source.get(firstSample + i) & 0xff];
+                target[offset + 2*i] = (byte) sample;
+                target[offset + 2*i+1] = (byte) (sample >> 8);
+            }
+        }
+    },
+    /**
+     * IMA ADPCM, 4 bits per sample. Every channel is predicted from its previous samples,
+     * so the clip can only be expanded from its start.
+     */
+    IMA_ADPCM {
+        @Override
+        int getEncodedSize(int sampleCount){
+            return (sampleCount + 1) / 2;
+        }
+
+        @Override
+        int getStateSize(int channels){
+            return 2 * channels;
+        }
+
+        @Override
+        void encode(short[] samples, int channels, ByteBuffer target){
+            int[] state = new int[getStateSize(channels)];
+            for(int i = 0; i < samples.length; i++){
+                int nibble = ImaAdpcm.encode(state, i % channels, samples[i]);
+                int index = i / 2;
+                int packed = i % 2 == 0 ? nibble : (target.get(index) & 0x0f) | nibble << 4;
+                target.put(index, (byte) packed);
+            }
+        }
+
+        @Override
+        void expand(ByteBuffer source, int channels, int firstSample, int sampleCount,
+                    byte[] target, int offset, int[] state){
+            for(int i = 0; i < sampleCount; i++){
+                int sampleIndex = firstSample + i;
+                int packed = source.get(sampleIndex / 2);
+                int nibble = sampleIndex % 2 == 0 ? packed & 0x0f : packed >> 4 & 0x0f;
+                int sample = ImaAdpcm.decode(state, sampleIndex % channels, nibble);
+                target[offset + 2*i] = (byte) sample;
+                target[offset + 2*i+1] = (byte) (sample >> 8);
+            }
+        }
+    };
+
+    /**
+     * @param sampleCount the number of samples of all channels
+     * @return the number of bytes the encoded samples take
+     */
+    abstract int getEncodedSize(int sampleCount);
+
+    /**
+     * @param channels the number of channels of the clip
+     * @return the size of the state an expansion has to keep between chunks
+     */
+    int getStateSize(int channels){
+        return 0;
+    }
+
+    /**
+     * Encodes samples into target, starting at index 0 of target
+     * @param samples the interleaved samples of all channels
+     * @param channels the number of channels
+     * @param target a buffer of at least {@link #getEncodedSize(int)} bytes
+     */
+    abstract void encode(short[] samples, int channels, ByteBuffer target);
+
+    /**
+     * Expands encoded samples to signed 16 bit little endian PCM.
+     * The chunks of a clip must be expanded in order, starting with the first sample and a zeroed state.
+     * @param source the encoded samples, only read with absolute indices
+     * @param channels the number of channels
+     * @param firstSample the index of the first sample to expand
+     * @param sampleCount the number of samples to expand
+     * @param target the array to write the PCM data to
+     * @param offset the index in target of the first byte to write
+     * @param state the state of the expansion, {@link #getStateSize(int)} values
+     */
+    abstract void expand(ByteBuffer source, int channels, int firstSample, int sampleCount,
+                         byte[] target, int offset, int[] state);
+
+    /**
+     * G.711 µ-law companding
+     */
+    private static final class MuLaw {
+        /**
+         * Added to the magnitude, so every segment starts at a power of two
+         */
+        private static final int BIAS = 0x84;
+        /**
+         * The largest magnitude that can be encoded
+         */
+        private static final int CLIP = 32635;
+        /**
+         * The decoded sample of every encoded byte
+         */
+        static final short[] DECODED = new short[256];
+        static {
+            for(int i = 0; i < 256; i++){
+                int encoded = ~i;
+                int exponent = (encoded >> 4) & 0x07;
+                int magnitude = ((((encoded & 0x0f) << 3) + BIAS) << exponent) - BIAS;
+                DECODED[i] = (short) ((encoded & 0x80) != 0 ? -magnitude : magnitude);
+            }
+        }
+
+        /**
+         * Encodes one sample
+         * @param sample the sample to encode
+         * @return the encoded sample
+         */
+        static byte encode(short sample){
+            int sign = sample < 0 ? 0x80 : 0;
+            int magnitude = Math.min(CLIP, Math.abs((int) sample)) + BIAS;
+            int exponent = 7;
+            for(int mask = 0x4000; (magnitude & mask) == 0 && exponent > 0; mask >>= 1){
+                exponent--;
+            }
+            int mantissa = (magnitude >> (exponent + 3)) & 0x0f;
+            return (byte) ~(sign | exponent << 4 | mantissa);
+        }
+    }
+
+    /**
+     * IMA ADPCM coding, the state of every channel is its predicted sample and its step index
+     */
+    private static final class ImaAdpcm {
+        /**
+         * The change of the step index for every code
+         */
+        private static final int[] INDEX_CHANGE = {-1, -1, -1, -1, 2, 4, 6, 8, -1, -1, -1, -1, 2, 4, 6, 8};
+        /**
+         * The quantization step sizes
+         */
+        private static final int[] STEP_SIZE = {
+                7, 8, 9, 10, 11, 12, 13, 14, 16, 17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45,
+                50, 55, 60, 66, 73, 80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279, 307,
+                337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963, 1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066,
+                2272, 2499, 2749, 3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845, 8630, 9493, 10442, 11487, 12635, 13899,
+                15289, 16818, 18500, 20350, 22385, 24623, 27086, 29794, 32767};
+
+        /**
+         * Encodes one sample and updates the state of its channel like the decoder will
+         * @param state the predicted sample and step index of every channel
+         * @param channel the channel of the sample
+         * @param sample the sample to encode
+         * @return the 4 bit code of the sample
+         */
+        static int encode(int[] state, int channel, short sample){
+            int step = STEP_SIZE[state[2*channel+1]];
+            int difference = sample - state[2*channel];
+            int code = 0;
+            if(difference < 0){
+                code = 8;
+                difference = -difference;
+            }
+            for(int bit = 4; bit > 0; bit >>= 1){
+                if(difference >= step){
+                    code |= bit;
+                    difference -= step;
+                }
+                step >>= 1;
+            }
+            decode(state, channel, code);
+            return code;
+        }
+
+        /**
+         * Decodes one sample and updates the state of its channel
+         * @param state the predicted sample and step index of every channel
+         * @param channel the channel of the sample
+         * @param code the 4 bit code of the sample
+         * @return the decoded sample
+         */
+        static int decode(int[] state, int channel, int code){
+            int index = state[2*channel+1];
+            int step = STEP_SIZE[index];
+            int difference = step >> 3;
+            if((code & 4) != 0) difference += step;
+            if((code & 2) != 0) difference += step >> 1;
+            if((code & 1) != 0) difference += step >> 2;
+            int predicted = state[2*channel] + ((code & 8) != 0 ? -difference : difference);
+            predicted = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, predicted));
+            state[2*channel] = predicted;
+            state[2*channel+1] = Math.max(0, Math.min(STEP_SIZE.length - 1, index + INDEX_CHANGE[code]));
+            return predicted;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package de.aaronsom.blindWriter.sound;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.JavaLayerException;
+import javazoom.jl.decoder.SampleBuffer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decodes MP3 sound files into {@link SoundClip}s and preprocesses them with a {@link ClipPreprocessor}.
+ * The processed clips are cached on disk, keyed by the hash of the MP3 data and the preprocessor settings,
+ * so every sound file is only decoded and processed once. In memory, the clips of all sound packs are held
+ * off-heap by the {@link ClipCache} of the loader.
+ */
+public class ClipLoader {
+    private static final Logger LOGGER = Logger.getLogger(ClipLoader.class.getName());
+    /**
+     * Identifies a cache file and the version of its format
+     */
+    private static final int CACHE_MAGIC = 0x42574331;
+
+    /**
+     * The preprocessor applied to every decoded clip
+     */
+    private final ClipPreprocessor preprocessor;
+    /**
+     * The directory for the processed clips or null if clips are not cached
+     */
+    private final File cacheDirectory;
+    /**
+     * Holds the loaded clips of all sound packs in memory
+     */
+    private final ClipCache clipCache;
+
+    /**
+     * Constructs a new ClipLoader that holds the clips uncompressed with the default memory budget
+     * @param preprocessor the preprocessor applied to every decoded clip
+     * @param cacheDirectory the directory for the processed clips or null to disable caching
+     */
+    public ClipLoader(ClipPreprocessor preprocessor, File cacheDirectory){
+        this(preprocessor, cacheDirectory, new ClipCache(ClipCache.DEFAULT_BUDGET_BYTES, ClipEncoding.PCM_16));
+    }
+
+    /**
+     * Constructs a new ClipLoader
+     * @param preprocessor the preprocessor applied to every decoded clip
+     * @param cacheDirectory the directory for the processed clips or null to disable caching
+     * @param clipCache holds the loaded clips of all sound packs in memory
+     */
+    public ClipLoader(ClipPreprocessor preprocessor, File cacheDirectory, ClipCache clipCache){
+        this.preprocessor = preprocessor;
+        this.cacheDirectory = cacheDirectory;
+        this.clipCache = clipCache;
+    }
+
+    /**
+     * Creates a ClipLoader with the default preprocessing, a cache in the user's home directory
+     * and the configured {@link ClipCache}
+     * @return the created ClipLoader
+     */
+    public static ClipLoader createDefault(){
+        return new ClipLoader(new ClipPreprocessor(),
+                              new File(System.getProperty("user.home"), ".blind-writer/cache"),
+                              ClipCache.createDefault());
+    }
+
+    /**
+     * @return the cache holding the loaded clips of all sound packs in memory
+     */
+    public ClipCache getClipCache(){
+        return clipCache;
+    }
+
+    /**
+     * Returns the processed clip for the MP3 data, from the cache if possible.
+     * Reports the latency saved by trimming the leading silence of the clip.
+     * @param name the name of the clip for reporting
+     * @param mp3Data the content of the MP3 file
+     * @return the processed clip or null if the data could not be decoded
+     */
+    public SoundClip load(String name, byte[] mp3Data){
+        String key = cacheKey(mp3Data);
+        File cacheFile = cacheDirectory != null ? new File(cacheDirectory, key + ".pcm") : null;
+        if(cacheFile != null && cacheFile.isFile()){
+            try{
+                return readCacheFile(name, cacheFile);
+            } catch(IOException e){
+                LOGGER.log(Level.WARNING, "Ignoring unreadable cache file " + cacheFile, e);
+            }
+        }
+
+        SoundClip decoded;
+        try{
+            decoded = decode(mp3Data);
+        } catch(JavaLayerException e){
+            LOGGER.log(Level.WARNING, "Could not decode " + name, e);
+            return null;
+        }
+        SoundClip processed = preprocessor.process(decoded);
+        long latencySavedMillis = decoded.framesToMillis(preprocessor.findFirstAudibleFrame(decoded))
+                                  - processed.framesToMillis(preprocessor.findFirstAudibleFrame(processed));
+        LOGGER.info(name + ": " + latencySavedMillis + " ms latency saved, duration "
+                    + decoded.getDurationMillis() + " ms -> " + processed.getDurationMillis() + " ms");
+
+        if(cacheFile != null){
+            try{
+                writeCacheFile(cacheFile, processed, latencySavedMillis);
+            } catch(IOException e){
+                LOGGER.log(Level.WARNING, "Could not cache " + name, e);
+            }
+        }
+        return processed;
+    }
+
+    /**
+     * Decodes the MP3 data into 16 bit PCM samples
+     * @param mp3Data the content of the MP3 file
+     * @return the decoded clip
+     * @throws JavaLayerException if the data is no valid MP3
+     */
+    static SoundClip decode(byte[] mp3Data) throws JavaLayerException {
+        Bitstream bitstream = new Bitstream(new ByteArrayInputStream(mp3Data));
+        Decoder decoder = new Decoder();
+        short[] samples = new short[0];
+        int sampleCount = 0;
+        int sampleRate = 44100;
+        int channels = 1;
+        try{
+            Header header;
+            while((header = bitstream.readFrame()) != null){
+                SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                sampleRate = output.getSampleFrequency();
+                channels = output.getChannelCount();
+                int length = output.getBufferLength();
+                if(sampleCount + length > samples.length){
+                    short[] grown = new short[Math.max(2*samples.length, sampleCount+length)];
+                    System.arraycopy(samples, 0, grown, 0, sampleCount);
+                    samples = grown;
+                }
+                System.arraycopy(output.getBuffer(), 0, samples, sampleCount, length);
+                sampleCount += length;
+                bitstream.closeFrame();
+            }
+        } finally {
+            bitstream.close();
+        }
+        short[] decoded = new short[sampleCount];
+        System.arraycopy(samples, 0, decoded, 0, sampleCount);
+        return new SoundClip(decoded, sampleRate, channels);
+    }
+
+    /**
+     * Creates the cache key from the hash of the MP3 data and the preprocessor settings
+     */
+    private String cacheKey(byte[] mp3Data){
+        try{
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(mp3Data);
+            digest.update(preprocessor.getSettings().getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for(byte b : digest.digest()){
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch(NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    /**
+     * Reads a processed clip from the cache and reports the latency saved when it was processed
+     */
+    private static SoundClip readCacheFile(String name, File cacheFile) throws IOException {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))){
+            if(input.readInt() != CACHE_MAGIC){
+                throw new IOException("Unknown cache file format");
+            }
+            int sampleRate = input.readInt();
+            int channels = input.readInt();
+            long latencySavedMillis = input.readLong();
+            short[] samples = new short[input.readInt()];
+            for(int i = 0; i < samples.length; i++){
+                samples[i] = input.readShort();
+            }
+            LOGGER.fine(name + ": " + latencySavedMillis + " ms latency saved (cached)");
+            return new SoundClip(samples, sampleRate, channels);
+        }
+    }
+
+    /**
+     * Writes a processed clip to the cache.
+     * The file is written under a temporary name first, so other processes never read a partial file.
+     */
+    private static void writeCacheFile(File cacheFile, SoundClip clip, long latencySavedMillis) throws IOException {
+        Files.createDirectories(cacheFile.getParentFile().toPath());
+        Path temporaryFile = Files.createTempFile(cacheFile.getParentFile().toPath(), "clip", ".tmp");
+        try{
+            try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))){
+                output.writeInt(CACHE_MAGIC);
+                output.writeInt(clip.getSampleRate());
+                output.writeInt(clip.getChannels());
+                output.writeLong(latencySavedMillis);
+                short[] samples = clip.getSamples();
+                output.writeInt(samples.length);
+                for(short sample : samples){
+                    output.writeShort(sample);
+                }
+            }
+            try{
+                Files.move(temporaryFile, cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException e){
+                Files.move(temporaryFile, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
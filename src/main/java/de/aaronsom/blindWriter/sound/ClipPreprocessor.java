@@ -0,0 +1,222 @@
+package de.aaronsom.blindWriter.sound;
+
+/**
+ * Prepares decoded clips for playback with low latency.
+ * Leading and trailing silence is trimmed, the gain is normalized to a common peak level and, if a
+ * tempo above 1 is set, the clip is time-compressed without changing its pitch.
+ */
+public class ClipPreprocessor {
+    /**
+     * Default amplitude, relative to full scale, below which a frame counts as silent
+     */
+    public static final double DEFAULT_SILENCE_THRESHOLD = 0.02;
+    /**
+     * Default peak amplitude, relative to full scale, to which every clip is normalized
+     */
+    public static final double DEFAULT_TARGET_PEAK = 0.9;
+    /**
+     * Silence kept before and after the audible part of a clip so that it does not start or end with a click
+     */
+    private static final int PADDING_MILLIS = 5;
+    /**
+     * Length of the overlapping windows used for time compression
+     */
+    private static final int WINDOW_MILLIS = 30;
+
+    /**
+     * Amplitude, relative to full scale, below which a frame counts as silent
+     */
+    private final double silenceThreshold;
+    /**
+     * Peak amplitude, relative to full scale, to which every clip is normalized
+     */
+    private final double targetPeak;
+    /**
+     * Playback speed factor, 1 keeps the original length, 1.5 shortens a clip to two thirds
+     */
+    private final double tempo;
+
+    /**
+     * Constructs a new ClipPreprocessor with the default threshold and peak and without time compression
+     */
+    public ClipPreprocessor(){
+        this(DEFAULT_SILENCE_THRESHOLD, DEFAULT_TARGET_PEAK, 1);
+    }
+
+    /**
+     * Constructs a new ClipPreprocessor
+     * @param silenceThreshold amplitude, relative to full scale, below which a frame counts as silent
+     * @param targetPeak peak amplitude, relative to full scale, to which every clip is normalized
+     * @param tempo playback speed factor, must be at least 1
+     */
+    public ClipPreprocessor(double silenceThreshold, double targetPeak, double tempo){
+        if(tempo < 1){
+            throw new IllegalArgumentException("tempo must be at least 1");
+        }
+        this.silenceThreshold = silenceThreshold;
+        this.targetPeak = targetPeak;
+        this.tempo = tempo;
+    }
+
+    /**
+     * Trims, normalizes and time-compresses the clip
+     * @param clip the decoded clip
+     * @return the processed clip
+     */
+    public SoundClip process(SoundClip clip){
+        SoundClip processed = normalize(trim(clip));
+        if(tempo > 1){
+            processed = timeCompress(processed);
+        }
+        return processed;
+    }
+
+    /**
+     * A description of all settings that influence the result of {@link #process(SoundClip)}
+     * @return the settings as a String
+     */
+    public String getSettings(){
+        return "threshold=" + silenceThreshold + ";peak=" + targetPeak + ";tempo=" + tempo;
+    }
+
+    /**
+     * Finds the first frame in which any channel reaches the silence threshold
+     * @param clip the clip to search
+     * @return the index of the first audible frame or the frame count if the clip is silent
+     */
+    public int findFirstAudibleFrame(SoundClip clip){
+        int frameCount = clip.getFrameCount();
+        for(int frame = 0; frame < frameCount; frame++){
+            if(isAudible(clip, frame)){
+                return frame;
+            }
+        }
+        return frameCount;
+    }
+
+    /**
+     * Finds the end of the last frame in which any channel reaches the silence threshold
+     * @param clip the clip to search
+     * @return the index after the last audible frame or 0 if the clip is silent
+     */
+    public int findAudibleEnd(SoundClip clip){
+        for(int frame = clip.getFrameCount()-1; frame >= 0; frame--){
+            if(isAudible(clip, frame)){
+                return frame+1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Removes the silence before the first and after the last audible frame, keeping a short padding.
+     * A completely silent clip is returned unchanged.
+     * @param clip the clip to trim
+     * @return the trimmed clip
+     */
+    SoundClip trim(SoundClip clip){
+        int start = findFirstAudibleFrame(clip);
+        int end = findAudibleEnd(clip);
+        if(start >= end){
+            return clip;
+        }
+        int padding = clip.getSampleRate() * PADDING_MILLIS / 1000;
+        start = Math.max(0, start-padding);
+        end = Math.min(clip.getFrameCount(), end+padding);
+        int channels = clip.getChannels();
+        short[] trimmed = new short[(end-start) * channels];
+        System.arraycopy(clip.getSamples(), start*channels, trimmed, 0, trimmed.length);
+        return new SoundClip(trimmed, clip.getSampleRate(), channels);
+    }
+
+    /**
+     * Scales all samples so that the loudest sample reaches targetPeak.
+     * A completely silent clip is returned unchanged.
+     * @param clip the clip to normalize
+     * @return the normalized clip
+     */
+    SoundClip normalize(SoundClip clip){
+        short[] samples = clip.getSamples();
+        int peak = 0;
+        for(short sample : samples){
+            peak = Math.max(peak, Math.abs(sample));
+        }
+        if(peak == 0){
+            return clip;
+        }
+        double gain = targetPeak * Short.MAX_VALUE / peak;
+        short[] normalized = new short[samples.length];
+        for(int i = 0; i < samples.length; i++){
+            normalized[i] = clamp(samples[i] * gain);
+        }
+        return new SoundClip(normalized, clip.getSampleRate(), clip.getChannels());
+    }
+
+    /**
+     * Shortens the clip by the tempo factor without changing its pitch.
+     * Windows of {@link #WINDOW_MILLIS} are taken from the clip at a distance of tempo times half a window
+     * and added up again with an overlap of half a window (overlap-add with a Hann window).
+     * The first and the last half window are not faded so that the clip starts and ends as before.
+     * @param clip the clip to compress
+     * @return the compressed clip or the clip itself if it is shorter than one window
+     */
+    SoundClip timeCompress(SoundClip clip){
+        int channels = clip.getChannels();
+        int frameCount = clip.getFrameCount();
+        int windowLength = Math.max(2, clip.getSampleRate() * WINDOW_MILLIS / 1000 / 2 * 2);
+        int outputHop = windowLength / 2;
+        int inputHop = (int) Math.round(outputHop * tempo);
+        if(frameCount < windowLength){
+            return clip;
+        }
+        int windowCount = (frameCount - windowLength) / inputHop + 1;
+        int outputFrames = (windowCount-1) * outputHop + windowLength;
+        double[] window = new double[windowLength];
+        for(int i = 0; i < windowLength; i++){
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / windowLength);
+        }
+
+        short[] samples = clip.getSamples();
+        double[] output = new double[outputFrames * channels];
+        for(int w = 0; w < windowCount; w++){
+            int inputStart = w * inputHop;
+            int outputStart = w * outputHop;
+            for(int i = 0; i < windowLength; i++){
+                double weight = window[i];
+                if((w == 0 && i < outputHop) || (w == windowCount-1 && i >= outputHop)){
+                    weight = 1;
+                }
+                for(int c = 0; c < channels; c++){
+                    output[(outputStart+i)*channels + c] += weight * samples[(inputStart+i)*channels + c];
+                }
+            }
+        }
+        short[] compressed = new short[output.length];
+        for(int i = 0; i < output.length; i++){
+            compressed[i] = clamp(output[i]);
+        }
+        return new SoundClip(compressed, clip.getSampleRate(), channels);
+    }
+
+    /**
+     * Indicates if any channel of the frame reaches the silence threshold
+     */
+    private boolean isAudible(SoundClip clip, int frame){
+        short[] samples = clip.getSamples();
+        int channels = clip.getChannels();
+        double limit = silenceThreshold * Short.MAX_VALUE;
+        for(int c = 0; c < channels; c++){
+            if(Math.abs(samples[frame*channels + c]) >= limit){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Rounds the value to the nearest 16 bit sample
+     */
+    private static short clamp(double value){
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(value)));
+    }
+}
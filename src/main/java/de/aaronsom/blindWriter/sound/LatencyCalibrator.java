@@ -0,0 +1,154 @@
+package de.aaronsom.blindWriter.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Finds the smallest line buffer size at which an {@link AudioOutput} plays without underruns.
+ * Every candidate size is measured by playing a silent test signal several times, so calibrating is inaudible.
+ * All measurements are logged.
+ */
+public class LatencyCalibrator {
+    private static final Logger LOGGER = Logger.getLogger(LatencyCalibrator.class.getName());
+    /**
+     * The buffer sizes to try, smallest first
+     */
+    static final int[] CANDIDATE_BUFFER_MILLIS = {10, 20, 40, 80, 160, 320};
+    /**
+     * The number of times each buffer size is measured
+     */
+    private static final int REPETITIONS = 3;
+    /**
+     * The length of the silent test signal
+     */
+    private static final int TEST_SIGNAL_MILLIS = 300;
+    /**
+     * The format of the test signal, the same as the bundled sounds
+     */
+    private static final AudioFormat TEST_FORMAT = new AudioFormat(44100, 16, 1, true, false);
+    /**
+     * The interval in which the frame position of the line is checked
+     */
+    private static final long POLL_NANOS = 1_000_000L;
+    /**
+     * How long to wait for the line to play the written frames
+     */
+    private static final long TIMEOUT_NANOS = 1_000_000_000L;
+
+    /**
+     * The output to calibrate
+     */
+    private final AudioOutput audioOutput;
+
+    /**
+     * Constructs a new LatencyCalibrator
+     * @param audioOutput the output to calibrate
+     */
+    public LatencyCalibrator(AudioOutput audioOutput){
+        this.audioOutput = audioOutput;
+    }
+
+    /**
+     * Measures all candidate buffer sizes and sets the smallest one without underruns on the output.
+     * If every size had underruns or no line is available, the buffer size of the output is not changed.
+     * @return the chosen buffer size in milliseconds or -1 if none was chosen
+     */
+    public int calibrate(){
+        for(int bufferMillis : CANDIDATE_BUFFER_MILLIS){
+            int underruns = 0;
+            long maxStartLatencyMillis = 0;
+            long maxEndToEndLatencyMillis = 0;
+            try{
+                for(int i = 0; i < REPETITIONS; i++){
+                    Measurement measurement = measure(bufferMillis);
+                    underruns += measurement.underruns;
+                    maxStartLatencyMillis = Math.max(maxStartLatencyMillis, measurement.startLatencyMillis);
+                    maxEndToEndLatencyMillis = Math.max(maxEndToEndLatencyMillis,
+                                                        measurement.endToEndLatencyMillis);
+                }
+            } catch(LineUnavailableException | IllegalArgumentException | IOException e){
+                LOGGER.log(Level.WARNING, "Calibration failed, no audio line available", e);
+                return -1;
+            }
+            LOGGER.info("Line buffer " + bufferMillis + " ms: " + underruns + " underruns in " + REPETITIONS
+                        + " runs, start latency up to " + maxStartLatencyMillis + " ms, end-to-end latency up to "
+                        + maxEndToEndLatencyMillis + " ms");
+            if(underruns == 0){
+                audioOutput.setBufferMillis(bufferMillis);
+                LOGGER.info("Calibrated line buffer to " + bufferMillis + " ms");
+                return bufferMillis;
+            }
+        }
+        LOGGER.warning("Every line buffer size had underruns, keeping " + audioOutput.getBufferMillis() + " ms");
+        return -1;
+    }
+
+    /**
+     * Plays the test signal once with the buffer size, the same way {@link AudioOutput#play} plays a sound
+     * into an idle line that has already been opened and started
+     * @param bufferMillis the buffer size in milliseconds
+     * @return the measured underruns and latencies
+     * @throws LineUnavailableException if no line is available
+     * @throws IOException if the test signal cannot be read
+     */
+    Measurement measure(int bufferMillis) throws LineUnavailableException, IOException {
+        int frameSize = TEST_FORMAT.getFrameSize();
+        byte[] silence = new byte[(int) (TEST_FORMAT.getFrameRate() * TEST_SIGNAL_MILLIS / 1000) * frameSize];
+        try(SourceDataLine line = audioOutput.openLine(TEST_FORMAT, bufferMillis)){
+            long start = System.nanoTime();
+            int firstChunk = Math.min(silence.length, line.getBufferSize() / 2 / frameSize * frameSize);
+            line.write(silence, 0, firstChunk);
+            // the first written frame has been played once the frame position has moved past it
+            long played = awaitFramePosition(line, 1);
+            int underruns = AudioOutput.write(line, new ByteArrayInputStream(silence, firstChunk,
+                                                                              silence.length - firstChunk));
+            long written = System.nanoTime();
+            long finished = awaitFramePosition(line, silence.length / frameSize);
+            return new Measurement(underruns, (played - start) / 1_000_000, (finished - written) / 1_000_000);
+        }
+    }
+
+    /**
+     * Waits until the line has played the indicated number of frames, checking every {@link #POLL_NANOS}
+     * @param line a started line
+     * @param frames the number of frames to wait for
+     * @return the time at which the frames had been played or the waiting timed out in nanoseconds
+     */
+    private static long awaitFramePosition(SourceDataLine line, long frames){
+        long waiting = System.nanoTime();
+        while(line.getLongFramePosition() < frames && System.nanoTime() - waiting < TIMEOUT_NANOS){
+            LockSupport.parkNanos(POLL_NANOS);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * The result of playing the test signal once
+     */
+    static class Measurement {
+        /**
+         * The number of times the line buffer ran empty
+         */
+        final int underruns;
+        /**
+         * The time from the first write into the idle line until it started playing
+         */
+        final long startLatencyMillis;
+        /**
+         * The time from writing the last frame, behind a full line buffer, until it was played
+         */
+        final long endToEndLatencyMillis;
+
+        Measurement(int underruns, long startLatencyMillis, long endToEndLatencyMillis){
+            this.underruns = underruns;
+            this.startLatencyMillis = startLatencyMillis;
+            this.endToEndLatencyMillis = endToEndLatencyMillis;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package de.aaronsom.blindWriter.sound;
+
+/**
+ * Sounds that are not bound to a key but signal the result of an action.
+ * If a sound pack has no sound file for a signal, a generated tone is played instead,
+ * so every signal is always audible and distinguishable from the others and from the spoken keys.
+ */
+public enum Signal {
+    /**
+     * An edit has been undone, falling tones
+     */
+    UNDO("rueckgaengig", 660, 440),
+    /**
+     * An undone edit has been redone, rising tones
+     */
+    REDO("wiederholen", 440, 660),
+    /**
+     * A completed word is not in the dictionary, two low tones
+     */
+    MISSPELLING("rechtschreibfehler", 220, 220),
+    /**
+     * A completion for the current word follows, two high rising tones
+     */
+    SUGGESTION("vorschlag", 880, 1320);
+
+    /**
+     * The sample rate of the generated tones
+     */
+    private static final int TONE_SAMPLE_RATE = 44100;
+    /**
+     * The duration of each note of a generated tone
+     */
+    private static final int NOTE_MILLIS = 90;
+    /**
+     * The silence between the notes of a generated tone
+     */
+    private static final int PAUSE_MILLIS = 30;
+    /**
+     * The duration of the fade in and out of each note, which avoids clicks
+     */
+    private static final int FADE_MILLIS = 8;
+    /**
+     * The peak amplitude of the generated tones, about a third of full scale
+     */
+    private static final double TONE_AMPLITUDE = 10000;
+
+    /**
+     * The name of the sound file without its extension
+     */
+    private final String fileName;
+    /**
+     * The frequencies in Hz of the notes of the generated tone
+     */
+    private final int[] toneFrequencies;
+
+    Signal(String fileName, int... toneFrequencies){
+        this.fileName = fileName;
+        this.toneFrequencies = toneFrequencies;
+    }
+
+    /**
+     * @return the name of the sound file for this signal without its extension
+     */
+    public String getFileName(){
+        return fileName;
+    }
+
+    /**
+     * Generates the tone that is played if a sound pack has no sound file for this signal
+     * @return a mono clip of short sine notes
+     */
+    SoundClip createTone(){
+        int noteFrames = NOTE_MILLIS * TONE_SAMPLE_RATE / 1000;
+        int pauseFrames = PAUSE_MILLIS * TONE_SAMPLE_RATE / 1000;
+        int fadeFrames = FADE_MILLIS * TONE_SAMPLE_RATE / 1000;
+        short[] samples = new short[toneFrequencies.length * (noteFrames + pauseFrames) - pauseFrames];
+        for(int note = 0; note < toneFrequencies.length; note++){
+            int start = note * (noteFrames + pauseFrames);
+            for(int i = 0; i < noteFrames; i++){
+                double envelope = Math.min(1, Math.min(i, noteFrames - 1 - i) / (double) fadeFrames);
+                double phase = 2 * Math.PI * toneFrequencies[note] * i / TONE_SAMPLE_RATE;
+                samples[start + i] = (short) Math.round(TONE_AMPLITUDE * envelope * Math.sin(phase));
+            }
+        }
+        return new SoundClip(samples, TONE_SAMPLE_RATE, 1);
+    }
+}
@@ -0,0 +1,99 @@
+package de.aaronsom.blindWriter.sound;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * A decoded sound as signed 16 bit PCM samples.
+ * The samples of all channels are interleaved. A clip is never changed after its creation,
+ * the samples array is shared and must not be modified.
+ */
+public class SoundClip {
+    /**
+     * The interleaved samples of all channels
+     */
+    private final short[] samples;
+    /**
+     * The number of frames per second
+     */
+    private final int sampleRate;
+    /**
+     * The number of channels
+     */
+    private final int channels;
+
+    /**
+     * Constructs a new SoundClip
+     * @param samples the interleaved samples of all channels, the array is not copied
+     * @param sampleRate the number of frames per second
+     * @param channels the number of channels
+     */
+    public SoundClip(short[] samples, int sampleRate, int channels){
+        this.samples = samples;
+        this.sampleRate = sampleRate;
+        this.channels = channels;
+    }
+
+    /**
+     * @return the interleaved samples of all channels, must not be modified
+     */
+    public short[] getSamples(){
+        return samples;
+    }
+
+    /**
+     * @return the number of frames per second
+     */
+    public int getSampleRate(){
+        return sampleRate;
+    }
+
+    /**
+     * @return the number of channels
+     */
+    public int getChannels(){
+        return channels;
+    }
+
+    /**
+     * @return the number of frames, i.e. the number of samples per channel
+     */
+    public int getFrameCount(){
+        return samples.length / channels;
+    }
+
+    /**
+     * @return the duration of the clip in milliseconds
+     */
+    public long getDurationMillis(){
+        return framesToMillis(getFrameCount());
+    }
+
+    /**
+     * Converts a number of frames of this clip to milliseconds
+     * @param frames the number of frames
+     * @return the duration of the frames in milliseconds
+     */
+    public long framesToMillis(int frames){
+        return frames * 1000L / sampleRate;
+    }
+
+    /**
+     * @return the format in which {@link #toBytes()} encodes the samples
+     */
+    public AudioFormat getAudioFormat(){
+        return new AudioFormat(sampleRate, 16, channels, true, false);
+    }
+
+    /**
+     * Encodes the samples as signed 16 bit little endian PCM
+     * @return the encoded samples
+     */
+    public byte[] toBytes(){
+        byte[] bytes = new byte[samples.length * 2];
+        for(int i = 0; i < samples.length; i++){
+            bytes[2*i] = (byte) samples[i];
+            bytes[2*i+1] = (byte) (samples[i] >> 8);
+        }
+        return bytes;
+    }
+}
@@ -1,20 +1,42 @@
 package de.aaronsom.blindWriter.sound;
 
-import java.util.HashMap;
-import java.util.Map;
+import de.aaronsom.blindWriter.util.DaemonThreadFactory;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The class to manage playing the right sound for a key input
  */
 public class SoundManager {
     /**
-     * Map of all supported keys
+     * The sound pack currently in use, shared with all SoundManagers created by {@link #withOutput(SoundOutput)}.
+     * It is replaced as a whole, so every call to play() sees either the old or the new pack completely.
+     */
+    private final AtomicReference<SoundPack> soundPack;
+    /**
+     * Loads new sound packs in the background, one at a time, and decodes evicted clips again
+     */
+    private final ExecutorService soundPackLoader;
+    /**
+     * Calibrates the output in the background, so loading a sound pack never waits for a calibration
+     */
+    private final ExecutorService calibrator;
+    /**
+     * Decodes and preprocesses the sound files of all packs
+     */
+    private final ClipLoader clipLoader;
+    /**
+     * The local output, which is calibrated by {@link #calibrate()}
      */
-    private Map<String, SoundPlayer> inputKeyToSoundMapping;
+    private final AudioOutput audioOutput;
     /**
-     * Default sound for not supported keys
+     * Plays all sounds of this SoundManager
      */
-    private SoundPlayer defaultPlayer;
+    private final SoundOutput soundOutput;
 
     /**
      * The base URL for all sound resources
@@ -22,45 +44,52 @@ public class SoundManager {
     private static String baseURL = "/de.aaronsom.blindWriter.sound/";
 
     /**
-     * Constructs a new SoundManager.
-     * If the required sound files with their required name are not found, this will throw a
-     * NullPointerException.
-     * Currently supported keys are:
-     * -the alphabet
-     * -german umlaute
-     * -enter
-     * -backspace
-     * -space
-     * -dot and comma
+     * Constructs a new SoundManager with the bundled sound pack, the default {@link ClipLoader}
+     * and the default {@link AudioOutput}.
+     * See {@link SoundPack} for the supported keys.
      */
     public SoundManager(){
-        inputKeyToSoundMapping = new HashMap<>();
-        defaultPlayer = new SoundPlayer(makePathToMP3("default"));
+        this(ClipLoader.createDefault(), AudioOutput.createDefault());
+    }
+
+    /**
+     * Constructs a new SoundManager with the bundled sound pack.
+     * See {@link SoundPack} for the supported keys.
+     * @param clipLoader the loader that decodes and preprocesses the sound files of all packs
+     * @param audioOutput the output to play all sounds through
+     */
+    public SoundManager(ClipLoader clipLoader, AudioOutput audioOutput){
+        this.clipLoader = clipLoader;
+        this.audioOutput = audioOutput;
+        soundOutput = audioOutput;
+        soundPack = new AtomicReference<>(SoundPack.fromResources(baseURL, clipLoader));
+        soundPackLoader = Executors.newSingleThreadExecutor(new DaemonThreadFactory("sound-pack-loader"));
+        calibrator = Executors.newSingleThreadExecutor(new DaemonThreadFactory("audio-calibrator"));
+        clipLoader.getClipCache().setDecoder(soundPackLoader);
+    }
+
+    /**
+     * Constructs a new SoundManager that shares everything but the output with another SoundManager
+     * @param shared the SoundManager whose sound pack, loader and background executors are shared
+     * @param soundOutput the output to play the sounds of this SoundManager through
+     */
+    private SoundManager(SoundManager shared, SoundOutput soundOutput){
+        clipLoader = shared.clipLoader;
+        audioOutput = shared.audioOutput;
+        soundPack = shared.soundPack;
+        soundPackLoader = shared.soundPackLoader;
+        calibrator = shared.calibrator;
+        this.soundOutput = soundOutput;
+    }
 
-        inputKeyToSoundMapping.put("\u0008", new SoundPlayer(makePathToMP3("loeschen")));
-        inputKeyToSoundMapping.put("\u0009", new SoundPlayer(makePathToMP3("tabulator")));
-        inputKeyToSoundMapping.put("\u001b", new SoundPlayer(makePathToMP3("escape")));
-        inputKeyToSoundMapping.put("\n", new SoundPlayer(makePathToMP3("zeilenumbruch")));
-        inputKeyToSoundMapping.put("\u0020", new SoundPlayer(makePathToMP3("leerzeichen")));
-        inputKeyToSoundMapping.put(".", new SoundPlayer(makePathToMP3("punkt")));
-        inputKeyToSoundMapping.put(",", new SoundPlayer(makePathToMP3("komma")));
-        inputKeyToSoundMapping.put("+", new SoundPlayer(makePathToMP3("plus")));
-        inputKeyToSoundMapping.put("-", new SoundPlayer(makePathToMP3("strich")));
-        inputKeyToSoundMapping.put("ä", new SoundPlayer(makePathToMP3("ae")));
-        inputKeyToSoundMapping.put("ö", new SoundPlayer(makePathToMP3("oe")));
-        inputKeyToSoundMapping.put("ü", new SoundPlayer(makePathToMP3("ue")));
-        inputKeyToSoundMapping.put("ß", new SoundPlayer(makePathToMP3("scharfes_s")));
-        //alphabet
-        String alphabet = "abcdefghijklmnopqrstuvwxyz";
-        for(int i = 0; i<26; i++){
-            String letter = String.valueOf(alphabet.charAt(i));
-            inputKeyToSoundMapping.put(letter, new SoundPlayer(makePathToMP3(letter)));
-        }
-        //numbers
-        for(int i = 0; i<=9; i++){
-            String number = String.valueOf(i);
-            inputKeyToSoundMapping.put(number, new SoundPlayer((makePathToMP3(number))));
-        }
+    /**
+     * Creates a SoundManager that plays through another output but shares the decoded sound pack with this one.
+     * Loading a new sound pack on either of them replaces the pack of both.
+     * @param soundOutput the output to play the sounds through
+     * @return the created SoundManager
+     */
+    public SoundManager withOutput(SoundOutput soundOutput){
+        return new SoundManager(this, soundOutput);
     }
 
     /**
@@ -70,19 +99,54 @@ public class SoundManager {
      */
     public void play(String key){
         String normalizedInputKey = key.toLowerCase();
-        if(inputKeyToSoundMapping.containsKey(normalizedInputKey)){
-            inputKeyToSoundMapping.get(normalizedInputKey).play();
-        } else {
-            defaultPlayer.play();
-        }
+        soundPack.get().getPlayer(normalizedInputKey).play(soundOutput);
+    }
+
+    /**
+     * Plays the sound of a signal. If the current sound pack has no sound file for the signal,
+     * a generated tone is played.
+     * @param signal the signal for which a sound is to be played
+     */
+    public void play(Signal signal){
+        soundPack.get().getPlayer(signal).play(soundOutput);
+    }
+
+    /**
+     * Loads, decodes and preprocesses the sound pack in directory in the background and replaces the current pack once it is
+     * completely loaded. Sounds played in the meantime still use the current pack.
+     * The current pack is removed from the {@link ClipCache} right after the swap and its buffers are freed
+     * as soon as no sound of it is playing anymore.
+     * @param directory the directory containing the sound files of the new pack
+     * @return a Future that completes with the new pack once it is in use
+     */
+    public Future<SoundPack> loadSoundPack(File directory){
+        return soundPackLoader.submit(() -> {
+            SoundPack newSoundPack = SoundPack.fromDirectory(directory, clipLoader);
+            soundPack.getAndSet(newSoundPack).release();
+            return newSoundPack;
+        });
+    }
+
+    /**
+     * Calibrates the line buffer size of the audio output in the background
+     * @return a Future that completes with the chosen buffer size in milliseconds or -1 if none was chosen
+     * @see LatencyCalibrator
+     */
+    public Future<Integer> calibrate(){
+        return calibrator.submit(() -> new LatencyCalibrator(audioOutput).calibrate());
+    }
+
+    /**
+     * @return the output all sounds are played through
+     */
+    public AudioOutput getAudioOutput(){
+        return audioOutput;
     }
 
     /**
-     * Creates the path to the MP3 file by concatenation of the base URL, the name and the file extension.
-     * @param name the name of the file
-     * @return the the String "/de.aaronsom.blindWriter.sound/<name>.mp3"
+     * @return the sound pack currently in use
      */
-    private String makePathToMP3(String name){
-        return baseURL+name+".mp3";
+    public SoundPack getSoundPack(){
+        return soundPack.get();
     }
 }
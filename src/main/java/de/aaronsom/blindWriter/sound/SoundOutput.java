@@ -0,0 +1,16 @@
+package de.aaronsom.blindWriter.sound;
+
+import javax.sound.sampled.AudioInputStream;
+
+/**
+ * A destination for decoded sounds, e.g. the local speakers or a remote client
+ */
+public interface SoundOutput {
+    /**
+     * Plays the PCM data of the stream and waits until it has been handed over completely.
+     * The stream should be read in chunks, so clips stored in a compressed {@link ClipEncoding}
+     * are only expanded a few samples at a time.
+     * @param pcm the PCM data to play and its format
+     */
+    public void play(AudioInputStream pcm);
+}
@@ -0,0 +1,304 @@
+package de.aaronsom.blindWriter.sound;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * An immutable set of sounds for all supported keys and signals.
+ * All sound files are decoded and preprocessed by a {@link ClipLoader} when the pack is created and
+ * held off-heap in its {@link ClipCache}, so playing a sound only touches the file system or the decoder
+ * if the sound has been evicted from the cache.
+ * Because a pack never changes after its creation, it can be shared between threads and replaced as a whole.
+ */
+public class SoundPack {
+    private static final Logger LOGGER = Logger.getLogger(SoundPack.class.getName());
+    /**
+     * Map of all supported keys to the name of their sound file without the extension.
+     * Currently supported keys are:
+     * -the alphabet
+     * -german umlaute
+     * -enter
+     * -backspace
+     * -space
+     * -dot and comma
+     */
+    private static final Map<String, String> KEY_TO_FILE_NAME;
+    static {
+        Map<String, String> keyToFileName = new LinkedHashMap<>();
+        keyToFileName.put("\u0008", "loeschen");
+        keyToFileName.put("\u0009", "tabulator");
+        keyToFileName.put("\u001b", "escape");
+        keyToFileName.put("\n", "zeilenumbruch");
+        keyToFileName.put(" ", "leerzeichen");
+        keyToFileName.put(".", "punkt");
+        keyToFileName.put(",", "komma");
+        keyToFileName.put("+", "plus");
+        keyToFileName.put("-", "strich");
+        keyToFileName.put("ä", "ae");
+        keyToFileName.put("ö", "oe");
+        keyToFileName.put("ü", "ue");
+        keyToFileName.put("ß", "scharfes_s");
+        //alphabet
+        String alphabet = "abcdefghijklmnopqrstuvwxyz";
+        for(int i = 0; i<26; i++){
+            String letter = String.valueOf(alphabet.charAt(i));
+            keyToFileName.put(letter, letter);
+        }
+        //numbers
+        for(int i = 0; i<=9; i++){
+            String number = String.valueOf(i);
+            keyToFileName.put(number, number);
+        }
+        KEY_TO_FILE_NAME = Collections.unmodifiableMap(keyToFileName);
+    }
+    /**
+     * The name of the sound file for not supported keys without the extension
+     */
+    private static final String DEFAULT_FILE_NAME = "default";
+    /**
+     * The extension of all sound files
+     */
+    private static final String FILE_EXTENSION = ".mp3";
+
+    /**
+     * The name of this pack
+     */
+    private final String name;
+    /**
+     * Map of all supported keys for which a sound file was found
+     */
+    private final Map<String, SoundPlayer> inputKeyToSoundMapping;
+    /**
+     * Map of all signals to their sound file or, if none was found, their generated tone
+     */
+    private final Map<Signal, SoundPlayer> signalToSoundMapping;
+    /**
+     * Default sound for not supported keys
+     */
+    private final SoundPlayer defaultPlayer;
+
+    /**
+     * Constructs a new SoundPack by loading all sound files from source
+     * @param name the name of the pack
+     * @param source the source of the sound files
+     * @param clipLoader the loader that decodes and preprocesses the sound files
+     */
+    private SoundPack(String name, SoundSource source, ClipLoader clipLoader){
+        this.name = name;
+        Map<String, SoundPlayer> keyMapping = new HashMap<>();
+        for(Map.Entry<String, String> entry : KEY_TO_FILE_NAME.entrySet()){
+            SoundPlayer player = createPlayer(source, clipLoader, entry.getValue());
+            if(player != null){
+                keyMapping.put(entry.getKey(), player);
+            }
+        }
+        Map<Signal, SoundPlayer> signalMapping = new EnumMap<>(Signal.class);
+        for(Signal signal : Signal.values()){
+            SoundPlayer player = createPlayer(source, clipLoader, signal.getFileName());
+            if(player == null){
+                player = new SoundPlayer(clipLoader.getClipCache(),
+                                         clipLoader.getClipCache().add(signal.getFileName(), signal.createTone(),
+                                                                       signal::createTone));
+            }
+            signalMapping.put(signal, player);
+        }
+        SoundPlayer player = createPlayer(source, clipLoader, DEFAULT_FILE_NAME);
+        if(player == null){
+            SoundClip silence = new SoundClip(new short[0], 44100, 1);
+            player = new SoundPlayer(clipLoader.getClipCache(),
+                                     clipLoader.getClipCache().add(DEFAULT_FILE_NAME, silence, () -> silence));
+        }
+        inputKeyToSoundMapping = keyMapping;
+        signalToSoundMapping = signalMapping;
+        defaultPlayer = player;
+        logMemoryUsage(clipLoader.getClipCache());
+    }
+
+    /**
+     * Creates a SoundPack from the sound resources below baseURL on the class path
+     * @param baseURL the base URL of the sound resources, e.g. "/de.aaronsom.blindWriter.sound/"
+     * @param clipLoader the loader that decodes and preprocesses the sound files
+     * @return the created SoundPack
+     */
+    public static SoundPack fromResources(String baseURL, ClipLoader clipLoader){
+        return new SoundPack(baseURL, name -> SoundPack.class.getResourceAsStream(baseURL+name), clipLoader);
+    }
+
+    /**
+     * Creates a SoundPack from the sound files in directory.
+     * The files must have the same names as the bundled sound resources.
+     * @param directory the directory containing the sound files
+     * @param clipLoader the loader that decodes and preprocesses the sound files
+     * @return the created SoundPack
+     */
+    public static SoundPack fromDirectory(File directory, ClipLoader clipLoader){
+        return new SoundPack(directory.getName(), name -> {
+            File file = new File(directory, name);
+            return file.isFile() ? new FileInputStream(file) : null;
+        }, clipLoader);
+    }
+
+    /**
+     * @return the name of this pack
+     */
+    public String getName(){
+        return name;
+    }
+
+    /**
+     * Indicates if this pack contains a sound for the key
+     * @param key the normalized key
+     * @return true if the key has its own sound, false if the default sound is used for it
+     */
+    public boolean hasSound(String key){
+        return inputKeyToSoundMapping.containsKey(key);
+    }
+
+    /**
+     * Returns the player for a key. If the key has no sound in this pack, the default player is returned.
+     * @param key the normalized key
+     * @return the player for the key
+     */
+    public SoundPlayer getPlayer(String key){
+        SoundPlayer player = inputKeyToSoundMapping.get(key);
+        return player != null ? player : defaultPlayer;
+    }
+
+    /**
+     * Returns the player for a signal. If the signal has no sound file in this pack, its generated tone is played.
+     * @param signal the signal
+     * @return the player for the signal
+     */
+    public SoundPlayer getPlayer(Signal signal){
+        return signalToSoundMapping.get(signal);
+    }
+
+    /**
+     * Removes all sounds of this pack from the {@link ClipCache}, so their buffers are freed once no sound of
+     * this pack is playing anymore. The pack must not be used afterwards, its sounds are not played anymore.
+     */
+    public void release(){
+        for(SoundPlayer player : getPlayers()){
+            player.release();
+        }
+    }
+
+    /**
+     * @return the number of bytes the sounds of this pack currently take outside of the heap
+     */
+    public long getStoredBytes(){
+        long storedBytes = 0;
+        for(SoundPlayer player : getPlayers()){
+            storedBytes += player.getStoredBytes();
+        }
+        return storedBytes;
+    }
+
+    /**
+     * @return the number of bytes the sounds of this pack would take as 16 bit PCM on the heap
+     */
+    public long getPcmBytes(){
+        long pcmBytes = 0;
+        for(SoundPlayer player : getPlayers()){
+            pcmBytes += player.getPcmBytes();
+        }
+        return pcmBytes;
+    }
+
+    /**
+     * @return all players of this pack, each only once
+     */
+    private Set<SoundPlayer> getPlayers(){
+        Set<SoundPlayer> players = Collections.newSetFromMap(new IdentityHashMap<>());
+        players.addAll(inputKeyToSoundMapping.values());
+        players.addAll(signalToSoundMapping.values());
+        players.add(defaultPlayer);
+        return players;
+    }
+
+    /**
+     * Reports the memory the sounds of this pack take outside of the heap and the memory use of the whole JVM
+     */
+    private void logMemoryUsage(ClipCache clipCache){
+        long directBytes = 0;
+        for(BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)){
+            if(pool.getName().equals("direct")){
+                directBytes = pool.getMemoryUsed();
+            }
+        }
+        LOGGER.info("Sound pack " + name + ": " + getPlayers().size() + " sounds, " + getStoredBytes() / 1024
+                    + " KB off-heap as " + clipCache.getEncoding() + " (" + getPcmBytes() / 1024
+                    + " KB as 16 bit PCM on the heap); all packs " + clipCache.getStoredBytes() / 1024 + " KB of "
+                    + clipCache.getBudgetBytes() / 1024 + " KB budget; JVM heap used "
+                    + ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1024
+                    + " KB, direct buffers " + directBytes / 1024 + " KB");
+    }
+
+    /**
+     * Loads a sound file and stores its clip in the cache of clipLoader.
+     * If the clip is evicted from the cache, it is loaded from source again.
+     * @param source the source of the sound file
+     * @param clipLoader the loader that decodes and preprocesses the sound file
+     * @param name the name of the sound file without the extension
+     * @return the player for the clip or null if the file does not exist or could not be read or decoded
+     */
+    private static SoundPlayer createPlayer(SoundSource source, ClipLoader clipLoader, String name){
+        SoundClip clip = load(source, clipLoader, name);
+        if(clip == null){
+            return null;
+        }
+        ClipCache clipCache = clipLoader.getClipCache();
+        return new SoundPlayer(clipCache, clipCache.add(name, clip, () -> load(source, clipLoader, name)));
+    }
+
+    /**
+     * Reads the complete sound file into memory and loads the clip from it
+     * @param source the source of the sound file
+     * @param clipLoader the loader that decodes and preprocesses the sound file
+     * @param name the name of the sound file without the extension
+     * @return the loaded clip or null if the file does not exist or could not be read or decoded
+     */
+    private static SoundClip load(SoundSource source, ClipLoader clipLoader, String name){
+        try(InputStream inputStream = source.open(name+FILE_EXTENSION)){
+            if(inputStream == null){
+                return null;
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while((read = inputStream.read(buffer)) != -1){
+                outputStream.write(buffer, 0, read);
+            }
+            return clipLoader.load(name, outputStream.toByteArray());
+        } catch(IOException e){
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * A location from which sound files can be opened by name
+     */
+    private interface SoundSource {
+        /**
+         * Opens the sound file
+         * @param fileName the name of the sound file including the extension
+         * @return a stream of the file or null if it does not exist
+         * @throws IOException if the file exists but cannot be opened
+         */
+        InputStream open(String fileName) throws IOException;
+    }
+}
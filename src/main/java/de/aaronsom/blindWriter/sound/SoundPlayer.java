@@ -1,44 +1,63 @@
 package de.aaronsom.blindWriter.sound;
 
-import javazoom.jl.decoder.JavaLayerException;
-import javazoom.jl.player.Player;
-
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
-
 /**
- * Class to play one sound file
+ * Class to play one decoded sound
  */
 public class SoundPlayer {
     /**
-     * The path to the sound file to play
+     * The cache holding the sound
      */
-    private String soundFilePath;
+    private final ClipCache clipCache;
+    /**
+     * The slot of the sound in clipCache
+     */
+    private final ClipCache.Slot slot;
+
     /**
-     * Constructs a SoundPlayer for the given file path
-     * If the given path references no sound file, nothing will happen on a call to play()
-     * @param filePath the path to the sound file to play
+     * Constructs a SoundPlayer for a sound held by a {@link ClipCache}
+     * If the sound contains no samples, nothing will happen on a call to play()
+     * @param clipCache the cache holding the sound
+     * @param slot the slot of the sound in clipCache
      */
-    public SoundPlayer(String filePath){
-        soundFilePath = filePath;
+    SoundPlayer(ClipCache clipCache, ClipCache.Slot slot){
+        this.clipCache = clipCache;
+        this.slot = slot;
     }
 
     /**
-     * Play soundFile
-     * If soundFile is no sound file or if the format is not supported or if other problems occur,
+     * Play the sound through soundOutput and wait until it has been handed over
+     * If the sound has been evicted from the cache, nothing will happen while it is decoded again in the background.
+     * If no audio line for the format is available or if other problems occur,
      * nothing will happen
+     * @param soundOutput the output to play the sound through
      */
-    public void play(){
-        try (InputStream fileInputStream = getClass().getResourceAsStream(soundFilePath)) {
-            Player player = new Player(fileInputStream);
-            player.play();
-            player.close();
-        }catch(IOException e){
-            e.printStackTrace();
-        }catch (JavaLayerException e) {
-            e.printStackTrace();
+    public void play(SoundOutput soundOutput){
+        StoredClip storedClip = clipCache.get(slot);
+        if(storedClip == null || storedClip.getSampleCount() == 0){
+            return;
         }
+        soundOutput.play(storedClip.openStream());
+    }
+
+    /**
+     * Removes the sound from the cache. A playback that has already started finishes normally,
+     * later calls to play() do nothing.
+     */
+    void release(){
+        clipCache.remove(slot);
+    }
+
+    /**
+     * @return the number of bytes the sound currently takes outside of the heap, 0 if it has been evicted
+     */
+    long getStoredBytes(){
+        return clipCache.getStoredBytes(slot);
+    }
+
+    /**
+     * @return the number of bytes the sound takes as 16 bit PCM
+     */
+    long getPcmBytes(){
+        return slot.getPcmBytes();
     }
 }
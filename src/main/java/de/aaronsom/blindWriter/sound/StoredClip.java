@@ -0,0 +1,118 @@
+package de.aaronsom.blindWriter.sound;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A clip held outside of the Java heap in a direct buffer, encoded with a {@link ClipEncoding}.
+ * The buffer is never changed after the clip has been created, so it can be played by many threads at once.
+ */
+class StoredClip {
+    /**
+     * The encoded samples
+     */
+    private final ByteBuffer data;
+    /**
+     * The encoding of data
+     */
+    private final ClipEncoding encoding;
+    /**
+     * The format of the expanded samples
+     */
+    private final AudioFormat format;
+    /**
+     * The number of samples of all channels
+     */
+    private final int sampleCount;
+
+    /**
+     * Constructs a new StoredClip
+     * @param data the encoded samples
+     * @param encoding the encoding of data
+     * @param format the format of the expanded samples
+     * @param sampleCount the number of samples of all channels
+     */
+    private StoredClip(ByteBuffer data, ClipEncoding encoding, AudioFormat format, int sampleCount){
+        this.data = data;
+        this.encoding = encoding;
+        this.format = format;
+        this.sampleCount = sampleCount;
+    }
+
+    /**
+     * Encodes a clip into a new direct buffer
+     * @param clip the clip to store
+     * @param encoding the encoding to store the clip in
+     * @return the stored clip
+     */
+    static StoredClip encode(SoundClip clip, ClipEncoding encoding){
+        short[] samples = clip.getSamples();
+        ByteBuffer data = ByteBuffer.allocateDirect(encoding.getEncodedSize(samples.length));
+        encoding.encode(samples, clip.getChannels(), data);
+        return new StoredClip(data, encoding, clip.getAudioFormat(), samples.length);
+    }
+
+    /**
+     * @return the number of bytes this clip takes outside of the heap
+     */
+    int getSizeBytes(){
+        return data.capacity();
+    }
+
+    /**
+     * @return the number of samples of all channels
+     */
+    int getSampleCount(){
+        return sampleCount;
+    }
+
+    /**
+     * Opens a stream that expands the clip to 16 bit PCM while it is read
+     * @return the stream of the expanded clip
+     */
+    AudioInputStream openStream(){
+        return new AudioInputStream(new ExpandingInputStream(), format, sampleCount / format.getChannels());
+    }
+
+    /**
+     * Expands the samples of the clip in the chunks they are read in
+     */
+    private class ExpandingInputStream extends InputStream {
+        /**
+         * The expansion state of the encoding
+         */
+        private final int[] state = new int[encoding.getStateSize(format.getChannels())];
+        /**
+         * The index of the next sample to expand
+         */
+        private int position;
+
+        /**
+         * Single bytes cannot be read, because the samples are expanded as a whole
+         * @throws IOException always
+         */
+        @Override
+        public int read() throws IOException {
+            throw new IOException("Expanded clips can only be read in whole samples");
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length){
+            int samples = Math.min(length / 2, sampleCount - position);
+            if(samples <= 0){
+                return position == sampleCount ? -1 : 0;
+            }
+            encoding.expand(data, format.getChannels(), position, samples, buffer, offset, state);
+            position += samples;
+            return 2 * samples;
+        }
+
+        @Override
+        public int available(){
+            return 2 * (sampleCount - position);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package de.aaronsom.blindWriter.spelling;
+
+import de.aaronsom.blindWriter.sound.Signal;
+import de.aaronsom.blindWriter.sound.SoundManager;
+import de.aaronsom.blindWriter.util.DaemonThreadFactory;
+import de.aaronsom.blindWriter.writing.TextListener;
+import de.aaronsom.blindWriter.writing.WordWalker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Checks the spelling of every completed word and plays {@link Signal#MISSPELLING} if it is not in the dictionary.
+ * The current word is followed through the {@link TrieDictionary} by a {@link WordWalker} on a background thread.
+ * The dictionary is loaded on the same thread, so creating a SpellChecker does not delay the start.
+ */
+public class SpellChecker implements TextListener {
+    private static final Logger LOGGER = Logger.getLogger(SpellChecker.class.getName());
+
+    /**
+     * Loads the dictionary, may return null if no dictionary is available
+     */
+    private final Callable<TrieDictionary> dictionaryLoader;
+    /**
+     * Plays the signal for misspelled words
+     */
+    private final SoundManager soundManager;
+    /**
+     * Checks the words in the order they were written
+     */
+    private final ExecutorService checker;
+
+    /*
+     * The following fields are only accessed on the checker thread
+     */
+    /**
+     * The loaded dictionary or null if spell checking is disabled
+     */
+    private TrieDictionary dictionary;
+    /**
+     * Follows the current word through the dictionary
+     */
+    private final WordWalker<Integer> walker;
+
+    /**
+     * Constructs a new SpellChecker and starts loading the dictionary in the background
+     * @param dictionaryLoader loads the dictionary, may return null to disable spell checking
+     * @param soundManager the {@link SoundManager} that plays the signal for misspelled words
+     */
+    public SpellChecker(Callable<TrieDictionary> dictionaryLoader, SoundManager soundManager){
+        this.dictionaryLoader = dictionaryLoader;
+        this.soundManager = soundManager;
+        walker = new WordWalker<>((node, letter) -> {
+            int child = dictionary.child(node, letter);
+            return child != TrieDictionary.NO_NODE ? child : null;
+        });
+        checker = Executors.newSingleThreadExecutor(new DaemonThreadFactory("spell-checker"));
+        checker.execute(this::loadDictionary);
+    }
+
+    /**
+     * Creates a SpellChecker for the word list woerterbuch.txt in the directory .blind-writer of the user's home.
+     * The word list is compiled to woerterbuch.dawg whenever it has changed.
+     * If there is no word list, spell checking is disabled.
+     * @param soundManager the {@link SoundManager} that plays the signal for misspelled words
+     * @return the created SpellChecker
+     */
+    public static SpellChecker createDefault(SoundManager soundManager){
+        File directory = new File(System.getProperty("user.home"), ".blind-writer");
+        File wordList = new File(directory, "woerterbuch.txt");
+        File compiled = new File(directory, "woerterbuch.dawg");
+        return new SpellChecker(() -> {
+            if(!wordList.isFile()){
+                return null;
+            }
+            if(!compiled.isFile() || compiled.lastModified() < wordList.lastModified()){
+                try(BufferedReader reader = Files.newBufferedReader(wordList.toPath(), StandardCharsets.UTF_8)){
+                    TrieDictionary.compile(reader, compiled);
+                }
+            }
+            return TrieDictionary.load(compiled);
+        }, soundManager);
+    }
+
+    @Override
+    public void textAppended(String text) {
+        checker.execute(() -> {
+            for(int i = 0; i < text.length(); i++){
+                append(text.charAt(i));
+            }
+        });
+    }
+
+    @Override
+    public void textRemoved(int count) {
+        checker.execute(() -> walker.remove(count));
+    }
+
+    /**
+     * Forgets the current word, e.g. because another document was opened
+     */
+    public void reset(){
+        checker.execute(this::startWord);
+    }
+
+    /**
+     * Loads the dictionary. If loading fails, spell checking is disabled.
+     */
+    private void loadDictionary(){
+        try{
+            dictionary = dictionaryLoader.call();
+            startWord();
+        } catch(Exception e){
+            LOGGER.log(Level.WARNING, "Could not load the dictionary, spell checking is disabled", e);
+        }
+    }
+
+    /**
+     * Starts a new word at the root of the dictionary
+     */
+    private void startWord(){
+        walker.startWord(dictionary != null ? dictionary.root() : null);
+    }
+
+    /**
+     * Follows a letter in the dictionary or checks the current word if c ends it.
+     * The content of a word is unknown if characters before it were removed, so it is not checked.
+     */
+    private void append(char c){
+        if(dictionary == null || walker.append(c)){
+            return;
+        }
+        Integer node = walker.getNode();
+        if(walker.getLength() > 0 && walker.isKnown() && (node == null || !dictionary.isWord(node))){
+            soundManager.play(Signal.MISSPELLING);
+        }
+        startWord();
+    }
+}
@@ -0,0 +1,237 @@
+package de.aaronsom.blindWriter.spelling;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A read-only dictionary stored as a directed acyclic word graph (a trie in which equal suffixes are shared).
+ * The compiled graph is memory-mapped from a file, so loading it does not read the file and
+ * the dictionary does not occupy heap memory.
+ *
+ * Words are looked up character by character: starting from {@link #root()}, {@link #child(int, char)}
+ * follows one character in time independent of the dictionary size.
+ *
+ * File format, all values are big endian ints:
+ * [magic][index of the root node][nodes...]
+ * Each node is [child count | TERMINAL_FLAG if a word ends here] followed by one (character, child index)
+ * pair per child, sorted by character. Children are always stored before their parents.
+ */
+public class TrieDictionary {
+    /**
+     * Identifies a compiled dictionary and the version of its format
+     */
+    private static final int MAGIC = 0x42574431;
+    /**
+     * Set in the node header if a word ends at the node
+     */
+    private static final int TERMINAL_FLAG = 0x80000000;
+    /**
+     * Mask for the child count in the node header
+     */
+    private static final int COUNT_MASK = 0x7fffffff;
+    /**
+     * Index of the first node in the file
+     */
+    private static final int FIRST_NODE = 2;
+    /**
+     * Returned by {@link #child(int, char)} if there is no child for the character
+     */
+    public static final int NO_NODE = -1;
+
+    /**
+     * The compiled graph
+     */
+    private final IntBuffer nodes;
+    /**
+     * The index of the root node
+     */
+    private final int root;
+
+    /**
+     * Constructs a new TrieDictionary on a compiled graph
+     * @param nodes the content of a compiled dictionary file
+     * @throws IOException if nodes is no compiled dictionary
+     */
+    private TrieDictionary(IntBuffer nodes) throws IOException {
+        if(nodes.limit() <= FIRST_NODE || nodes.get(0) != MAGIC){
+            throw new IOException("Unknown dictionary format");
+        }
+        this.nodes = nodes;
+        root = nodes.get(1);
+    }
+
+    /**
+     * Memory-maps a dictionary compiled by {@link #compile(BufferedReader, File)}
+     * @param file the compiled dictionary file
+     * @return the dictionary
+     * @throws IOException if the file cannot be mapped or is no compiled dictionary
+     */
+    public static TrieDictionary load(File file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new TrieDictionary(buffer.asIntBuffer());
+        }
+    }
+
+    /**
+     * Compiles a word list with one word per line into a dictionary file.
+     * Words are stored in lower case, converted character by character with {@link Character#toLowerCase(char)}
+     * like the words that are looked up, so the result does not depend on the locale. Empty lines are ignored.
+     * The dictionary is written to a temporary file first and then moved to output, so output never contains
+     * a partly written dictionary.
+     * @param words the word list
+     * @param output the file to write the compiled dictionary to
+     * @throws IOException if reading the word list or writing the file fails
+     */
+    public static void compile(BufferedReader words, File output) throws IOException {
+        BuildNode buildRoot = new BuildNode();
+        String line;
+        while((line = words.readLine()) != null){
+            String word = line.trim();
+            if(word.isEmpty()){
+                continue;
+            }
+            BuildNode node = buildRoot;
+            for(int i = 0; i < word.length(); i++){
+                node = node.children.computeIfAbsent(Character.toLowerCase(word.charAt(i)), c -> new BuildNode());
+            }
+            node.terminal = true;
+        }
+
+        NodeWriter writer = new NodeWriter();
+        int rootIndex = writer.write(buildRoot);
+        File directory = output.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        Path temporaryFile = Files.createTempFile(directory.toPath(), "dictionary", ".tmp");
+        try{
+            try(DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))){
+                outputStream.writeInt(MAGIC);
+                outputStream.writeInt(rootIndex);
+                for(int i = FIRST_NODE; i < writer.size; i++){
+                    outputStream.writeInt(writer.ints[i]);
+                }
+            }
+            try{
+                Files.move(temporaryFile, output.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException e){
+                Files.move(temporaryFile, output.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * @return the node at which every word starts
+     */
+    public int root(){
+        return root;
+    }
+
+    /**
+     * Follows one character from a node
+     * @param node a node of this dictionary
+     * @param c the next character of the word
+     * @return the node reached by c or {@link #NO_NODE} if no word continues with c
+     */
+    public int child(int node, char c){
+        int low = 0;
+        int high = (nodes.get(node) & COUNT_MASK) - 1;
+        while(low <= high){
+            int middle = (low + high) >>> 1;
+            int character = nodes.get(node + 1 + 2*middle);
+            if(character < c){
+                low = middle + 1;
+            } else if(character > c){
+                high = middle - 1;
+            } else {
+                return nodes.get(node + 2 + 2*middle);
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Indicates if a word ends at the node
+     * @param node a node of this dictionary
+     * @return true if the characters followed to reach node form a word
+     */
+    public boolean isWord(int node){
+        return (nodes.get(node) & TERMINAL_FLAG) != 0;
+    }
+
+    /**
+     * Indicates if the dictionary contains the word
+     * @param word the word in lower case
+     * @return true if the word is in the dictionary
+     */
+    public boolean contains(String word){
+        int node = root;
+        for(int i = 0; i < word.length() && node != NO_NODE; i++){
+            node = child(node, word.charAt(i));
+        }
+        return node != NO_NODE && isWord(node);
+    }
+
+    /**
+     * A node of the trie while the word list is compiled
+     */
+    private static class BuildNode {
+        TreeMap<Character, BuildNode> children = new TreeMap<>();
+        boolean terminal;
+    }
+
+    /**
+     * Serializes the trie children first and stores equal nodes only once, which turns the trie into a DAWG
+     */
+    private static class NodeWriter {
+        int[] ints = new int[1024];
+        int size = FIRST_NODE;
+        /**
+         * Index of every written node by its content
+         */
+        Map<String, Integer> writtenNodes = new HashMap<>();
+
+        /**
+         * Writes the node and all its descendants
+         * @return the index of the node
+         */
+        int write(BuildNode node){
+            int[] content = new int[1 + 2*node.children.size()];
+            content[0] = node.children.size() | (node.terminal ? TERMINAL_FLAG : 0);
+            int i = 1;
+            for(Map.Entry<Character, BuildNode> child : node.children.entrySet()){
+                content[i++] = child.getKey();
+                content[i++] = write(child.getValue());
+            }
+            String key = Arrays.toString(content);
+            Integer existing = writtenNodes.get(key);
+            if(existing != null){
+                return existing;
+            }
+            if(size + content.length > ints.length){
+                ints = Arrays.copyOf(ints, Math.max(2*ints.length, size + content.length));
+            }
+            System.arraycopy(content, 0, ints, size, content.length);
+            int index = size;
+            size += content.length;
+            writtenNodes.put(key, index);
+            return index;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package de.aaronsom.blindWriter.util;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates the background threads of this application. They are daemon threads, so they never keep
+ * the application running after its window has been closed.
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+    /**
+     * The name of all created threads
+     */
+    private final String name;
+
+    /**
+     * Constructs a new DaemonThreadFactory
+     * @param name the name of all created threads
+     */
+    public DaemonThreadFactory(String name){
+        this.name = name;
+    }
+
+    /**
+     * Creates a daemon thread, which is not started yet
+     * @param runnable the task of the thread
+     * @return the created thread
+     */
+    @Override
+    public Thread newThread(Runnable runnable){
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
@@ -1,21 +1,51 @@
 package de.aaronsom.blindWriter.writing;
 
 import de.aaronsom.blindWriter.file.FileSaver;
+import de.aaronsom.blindWriter.sound.Signal;
 import de.aaronsom.blindWriter.sound.SoundManager;
+import de.aaronsom.blindWriter.util.DaemonThreadFactory;
 
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A {@link KeyListener} for a {@link JTextArea}
  * This class intercepts all KeyEvents for the text area to prevent writing in the text area
  * except if the same {@link KeyEvent} has been triggered back to back.
  * When this happens, this class appends the KeyChar of the event to the text area.
+ * Without a text area, key presses can also be passed in directly to write into any {@link Document}.
+ * Ctrl+Z and Ctrl+Y, confirmed the same way, undo and redo the edits recorded in the {@link EditHistory}.
+ * F5 accepts the suggestion of the {@link SuggestionProvider} right away, so Tab can still be typed.
+ * F2, F3 and F4 read back the previous word, sentence or line right away. Pressing them repeatedly
+ * moves further back through the document, any other key stops reading back.
  */
 public class BlindWriterKeyListener implements KeyListener{
+    /**
+     * The key that reads back the previous word
+     */
+    public static final int READ_WORD_KEY = KeyEvent.VK_F2;
+    /**
+     * The key that reads back the previous sentence
+     */
+    public static final int READ_SENTENCE_KEY = KeyEvent.VK_F3;
+    /**
+     * The key that reads back the previous line
+     */
+    public static final int READ_LINE_KEY = KeyEvent.VK_F4;
+    /**
+     * The key that accepts the suggestion of the {@link SuggestionProvider}
+     */
+    public static final int ACCEPT_SUGGESTION_KEY = KeyEvent.VK_F5;
     /**
      * The FileSaver that keeps track of all changes
      */
@@ -25,9 +55,13 @@ public class BlindWriterKeyListener implements KeyListener{
      */
     private SoundManager soundManager;
     /**
-     * The JTextArea into which is written by this
+     * The Document into which is written by this
+     */
+    private Document document;
+    /**
+     * Executes all edits of document one after the other
      */
-    private JTextArea textArea;
+    private Executor editExecutor;
     /**
      * The current state of the writing process
      */
@@ -36,10 +70,43 @@ public class BlindWriterKeyListener implements KeyListener{
      * The KeyCode of the last KeyEvent that occured
      */
     private int lastKeyPress;
+    /**
+     * True if the control key was held down during the last KeyEvent that occured
+     */
+    private boolean lastControlDown;
     /**
      * A list of all currently held down keys
      */
     private List<Integer> heldDownKeys;
+    /**
+     * The history of all edits that can be undone and redone
+     */
+    private EditHistory editHistory;
+    /**
+     * The listeners that are informed about all written and removed text
+     */
+    private List<TextListener> textListeners;
+    /**
+     * Provides completions for the current word or null if there are none
+     */
+    private SuggestionProvider suggestionProvider;
+    /**
+     * The line and sentence boundaries of document
+     */
+    private BoundaryIndex boundaryIndex;
+    /**
+     * The offset up to which the next read back reads, the end of document after every edit
+     */
+    private int readBackOffset;
+    /**
+     * Plays the read back text in the background, so reading back long lines does not block the edits.
+     * Its thread ends when it is idle, so listeners that are no longer used do not keep a thread.
+     */
+    private ThreadPoolExecutor readBackSpeaker;
+    /**
+     * Incremented whenever reading back starts or is stopped, the running read back stops when it changes
+     */
+    private AtomicInteger readBackGeneration;
 
     /**
      * Constructs a new {@link BlindWriterKeyListener} for a {@link JTextArea} with a {@link FileSaver}
@@ -48,12 +115,55 @@ public class BlindWriterKeyListener implements KeyListener{
      * @param soundManager the {@link SoundManager} that plays a sound for the key presses
      */
     public BlindWriterKeyListener(JTextArea textArea, FileSaver fileSaver, SoundManager soundManager){
-        this.textArea = textArea;
+        this(textArea.getDocument(), fileSaver, soundManager, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Constructs a new {@link BlindWriterKeyListener} for a {@link Document} with a {@link FileSaver}
+     * @param document the {@link Document} into which is written
+     * @param fileSaver the {@link FileSaver} that keeps track of the changes
+     * @param soundManager the {@link SoundManager} that plays a sound for the key presses
+     * @param editExecutor executes all edits of document one after the other,
+     *                     e.g. on the Event Dispatch Thread for a document shown in a text area
+     */
+    public BlindWriterKeyListener(Document document, FileSaver fileSaver, SoundManager soundManager,
+                                  Executor editExecutor){
+        this.document = document;
+        this.editExecutor = editExecutor;
         this.fileSaver = fileSaver;
         this.soundManager = soundManager;
         writingState = WritingState.NONE;
         lastKeyPress = -1;
         heldDownKeys = new ArrayList<>();
+        editHistory = new EditHistory();
+        textListeners = new ArrayList<>();
+        boundaryIndex = new BoundaryIndex();
+        try {
+            boundaryIndex.append(document.getText(0, document.getLength()));
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+        }
+        readBackOffset = boundaryIndex.getLength();
+        readBackSpeaker = new ThreadPoolExecutor(1, 1, 10, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                                 new DaemonThreadFactory("read-back"));
+        readBackSpeaker.allowCoreThreadTimeOut(true);
+        readBackGeneration = new AtomicInteger();
+    }
+
+    /**
+     * Adds a listener that is informed about all text written or removed by this
+     * @param textListener the listener to add
+     */
+    public void addTextListener(TextListener textListener){
+        textListeners.add(textListener);
+    }
+
+    /**
+     * Sets the provider of the completions that are accepted with {@link #ACCEPT_SUGGESTION_KEY}
+     * @param suggestionProvider the provider of completions for the current word
+     */
+    public void setSuggestionProvider(SuggestionProvider suggestionProvider){
+        this.suggestionProvider = suggestionProvider;
     }
 
     /**
@@ -66,8 +176,9 @@ public class BlindWriterKeyListener implements KeyListener{
 
     /**
      * Check if a key was selected and if the typed key matches the last typed key.
-     * If this is the case, the typed key will be appended to textArea and fileSaver or if the
-     * pressed key was Backspace, removes the last character of textArea and fileSaver.
+     * If this is the case, the typed key will be appended to document and fileSaver or if the
+     * pressed key was Backspace, removes the last character of document and fileSaver.
+     * If the pressed key was Ctrl+Z or Ctrl+Y, the last edit is undone or redone instead.
      * Afterwards the state is reset to WrintingState.NONE
      *
      * If no key was selected and if the pressed key results in a valid Unicode character,
@@ -75,37 +186,79 @@ public class BlindWriterKeyListener implements KeyListener{
      *
      * Makes soundManager play a sound according to the key pressed.
      *
+     * If the pressed key is a read back key, the previous word, sentence or line is read back instead
+     * and nothing else happens. Any other key stops reading back.
+     * If the pressed key is {@link #ACCEPT_SUGGESTION_KEY} and there is a suggestionProvider, its suggestion
+     * is accepted right away and the selected key is discarded.
+     *
      * The above does happen for a key only once while it is held down. So all key pressed events for the key
      * are ignored while it is on the heldDownKeys list.
      * Consumes the {@link KeyEvent} so that the text area does not use it.
      * @param e the {@link KeyEvent} that occurred
      */
     public void keyPressed(KeyEvent e) {
-        int pressedKeyCode = e.getKeyCode();
-        char pressedKeyChar = e.getKeyChar();
+        keyPressed(e.getKeyCode(), e.getKeyChar(), e.isControlDown());
+        e.consume();
+    }
+
+    /**
+     * Handles a key press as described in {@link #keyPressed(KeyEvent)}
+     * @param pressedKeyCode the key code of the pressed key
+     * @param pressedKeyChar the character of the pressed key or {@link KeyEvent#CHAR_UNDEFINED}
+     * @param controlDown true if the control key was held down
+     */
+    public void keyPressed(int pressedKeyCode, char pressedKeyChar, boolean controlDown) {
         if (!heldDownKeys.contains(pressedKeyCode)) {
-            if(writingState == WritingState.SELECTED && lastKeyPress == pressedKeyCode){
+            if (pressedKeyCode == READ_WORD_KEY || pressedKeyCode == READ_SENTENCE_KEY
+                || pressedKeyCode == READ_LINE_KEY) {
+                editExecutor.execute(new ReadBackAction(pressedKeyCode));
+                heldDownKeys.add(pressedKeyCode);
+                return;
+            }
+            readBackGeneration.incrementAndGet();
+            if (pressedKeyCode == ACCEPT_SUGGESTION_KEY) {
+                if (suggestionProvider != null) {
+                    editExecutor.execute(new AcceptSuggestionAction());
+                }
+                writingState = WritingState.NONE;
+                heldDownKeys.add(pressedKeyCode);
+                return;
+            }
+            if(writingState == WritingState.SELECTED && lastKeyPress == pressedKeyCode
+               && lastControlDown == controlDown){
                 if (pressedKeyCode == KeyEvent.VK_BACK_SPACE) {
-                    SwingUtilities.invokeLater(new RemoveAction());
+                    editExecutor.execute(new RemoveAction());
+                } else if (controlDown && pressedKeyCode == KeyEvent.VK_Z) {
+                    editExecutor.execute(new UndoAction());
+                } else if (controlDown && pressedKeyCode == KeyEvent.VK_Y) {
+                    editExecutor.execute(new RedoAction());
                 } else {
-                    SwingUtilities.invokeLater(new AppendAction(String.valueOf(pressedKeyChar)));
+                    editExecutor.execute(new AppendAction(String.valueOf(pressedKeyChar)));
                 }
                 writingState = WritingState.NONE;
             } else if(pressedKeyChar != KeyEvent.CHAR_UNDEFINED){
                 lastKeyPress = pressedKeyCode;
+                lastControlDown = controlDown;
                 writingState = WritingState.SELECTED;
             }
             heldDownKeys.add(pressedKeyCode);
             triggerSoundManager(String.valueOf(pressedKeyChar));
         }
-        e.consume();
     }
 
     /**
      * Removes the key from the heldDownKeys list
      */
     public void keyReleased(KeyEvent e) {
-        heldDownKeys.remove(new Integer(e.getKeyCode()));
+        keyReleased(e.getKeyCode());
+    }
+
+    /**
+     * Removes the key from the heldDownKeys list
+     * @param releasedKeyCode the key code of the released key
+     */
+    public void keyReleased(int releasedKeyCode) {
+        heldDownKeys.remove(new Integer(releasedKeyCode));
     }
 
     /**
@@ -117,42 +270,304 @@ public class BlindWriterKeyListener implements KeyListener{
     }
 
     /**
-     * Runnable to append a String to the end of the JTextArea textArea
+     * Appends text to the end of document and fileSaver without recording it in editHistory
+     * and informs all textListeners
+     * @param text the text to append
+     */
+    private void appendText(String text){
+        try {
+            document.insertString(document.getLength(), text, null);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+            return;
+        }
+        fileSaver.append(text);
+        boundaryIndex.append(text);
+        readBackOffset = boundaryIndex.getLength();
+        for(TextListener textListener : textListeners){
+            textListener.textAppended(text);
+        }
+    }
+
+    /**
+     * Removes text of indicated length at offset from document and from the end of fileSaver
+     * without recording it in editHistory and informs all textListeners.
+     * Text that has already been saved cannot be removed from the file anymore. If unsavedOnly is true,
+     * such text is kept in document and fileSaver, otherwise it is only removed from document.
+     * @param offset the offset of the text to remove
+     * @param length the number of characters to remove
+     * @param unsavedOnly true to remove the text only if fileSaver still holds all of it
+     * @return the number of characters removed from fileSaver, which is less than length if the text
+     *         had already been saved, or -1 if the text could not be removed from document
+     */
+    private int removeText(int offset, int length, boolean unsavedOnly){
+        String text;
+        try {
+            text = document.getText(offset, length);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+            return -1;
+        }
+        int removedFromFile = fileSaver.remove(length);
+        if(unsavedOnly && removedFromFile < length){
+            restoreInFile(text, removedFromFile);
+            return removedFromFile;
+        }
+        try {
+            document.remove(offset, length);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+            restoreInFile(text, removedFromFile);
+            return -1;
+        }
+        boundaryIndex.remove(length);
+        readBackOffset = boundaryIndex.getLength();
+        for(TextListener textListener : textListeners){
+            textListener.textRemoved(length);
+        }
+        return removedFromFile;
+    }
+
+    /**
+     * Appends the end of text that has been removed from fileSaver again
+     * @param text the text that was to be removed
+     * @param removedFromFile the number of characters at the end of text that were removed from fileSaver
+     */
+    private void restoreInFile(String text, int removedFromFile){
+        if(removedFromFile > 0){
+            fileSaver.append(text.substring(text.length() - removedFromFile));
+        }
+    }
+
+    /**
+     * Runnable to append a String to the end of document
      */
     private class AppendAction implements Runnable{
         String toAppend;
 
         /**
-         * Constructs a new AppendAction with the String to append to textArea and fileSaver
-         * @param toAppend the String to append to textArea
+         * Constructs a new AppendAction with the String to append to document and fileSaver
+         * @param toAppend the String to append to document
          */
         AppendAction(String toAppend) {
             this.toAppend = toAppend;
         }
 
         /**
-         * Appends the String to the end of textArea and fileSaver
+         * Appends the String to the end of document and fileSaver and records every appended
+         * code point in editHistory
          */
         @Override
         public void run() {
-            textArea.append(toAppend);
-            fileSaver.append(toAppend);
+            int offset = document.getLength();
+            appendText(toAppend);
+            for(int i = 0; i < toAppend.length(); ){
+                int codePoint = toAppend.codePointAt(i);
+                editHistory.recordAppend(codePoint, offset+i);
+                i += Character.charCount(codePoint);
+            }
         }
     }
 
     /**
-     * Runnable to remove the last character of textArea and fileSaver
+     * Runnable to remove the last code point of document and fileSaver
      */
     private class RemoveAction implements Runnable{
 
         /**
-         * Removes the last character of textArea and fileSaver
+         * Removes the last code point of document and fileSaver and records it in editHistory.
+         * If the code point had already been saved, it cannot be restored in the file,
+         * so editHistory is cleared instead. Nothing happens if document is empty.
+         */
+        @Override
+        public void run() {
+            int documentLength = document.getLength();
+            if(documentLength == 0){
+                return;
+            }
+            try {
+                String end = document.getText(Math.max(0, documentLength-2), Math.min(2, documentLength));
+                int removed = end.codePointBefore(end.length());
+                int length = Character.charCount(removed);
+                int removedFromFile = removeText(documentLength-length, length, false);
+                if(removedFromFile == length){
+                    editHistory.recordRemove(removed, documentLength-length);
+                } else if(removedFromFile >= 0){
+                    editHistory.clear();
+                }
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Runnable to revert the most recent edit in editHistory
+     */
+    private class UndoAction implements Runnable{
+
+        /**
+         * Reverts the most recent edit on document and fileSaver.
+         * Makes soundManager play the undo signal followed by the sound of the affected character.
+         * Nothing happens if there is nothing to undo. If the appended character has already been saved or
+         * cannot be removed, nothing is reverted and editHistory is cleared, because the older edits depend on it.
+         */
+        @Override
+        public void run() {
+            int slot = editHistory.undo();
+            if(slot < 0){
+                return;
+            }
+            String text = new String(Character.toChars(editHistory.getCodePoint(slot)));
+            if(editHistory.getType(slot) == EditHistory.APPEND){
+                if(removeText(editHistory.getOffset(slot), text.length(), true) != text.length()){
+                    editHistory.clear();
+                    return;
+                }
+            } else {
+                appendText(text);
+            }
+            soundManager.play(Signal.UNDO);
+            soundManager.play(text);
+        }
+    }
+
+    /**
+     * Runnable to apply the most recently undone edit in editHistory again
+     */
+    private class RedoAction implements Runnable{
+
+        /**
+         * Applies the most recently undone edit on document and fileSaver again.
+         * Makes soundManager play the redo signal followed by the sound of the affected character.
+         * Nothing happens if there is nothing to redo. If the character to remove has already been saved or
+         * cannot be removed, nothing is applied and editHistory is cleared, because the newer edits depend on it.
+         */
+        @Override
+        public void run() {
+            int slot = editHistory.redo();
+            if(slot < 0){
+                return;
+            }
+            String text = new String(Character.toChars(editHistory.getCodePoint(slot)));
+            if(editHistory.getType(slot) == EditHistory.APPEND){
+                appendText(text);
+            } else if(removeText(editHistory.getOffset(slot), text.length(), true) != text.length()){
+                editHistory.clear();
+                return;
+            }
+            soundManager.play(Signal.REDO);
+            soundManager.play(text);
+        }
+    }
+
+    /**
+     * Runnable to complete the word at the end of document with the suggestion of suggestionProvider
+     */
+    private class AcceptSuggestionAction implements Runnable{
+
+        /**
+         * Appends the letters of the suggestion that are missing from the word at the end of document.
+         * If there is no suggestion for this word, nothing is appended.
          */
         @Override
         public void run() {
-            int documentLength = textArea.getDocument().getLength();
-            textArea.replaceRange("",documentLength-1, documentLength);
-            fileSaver.remove(1);
+            String suggestion = suggestionProvider.getSuggestion();
+            String word = getWordAtEnd();
+            if(suggestion != null && suggestion.length() > word.length()
+               && suggestion.regionMatches(true, 0, word, 0, word.length())){
+                new AppendAction(suggestion.substring(word.length())).run();
+            }
+        }
+
+        /**
+         * @return the letters at the end of document
+         */
+        private String getWordAtEnd(){
+            int end = document.getLength();
+            try {
+                int start = end;
+                while(start > 0 && Character.isLetter(document.getText(start-1, 1).charAt(0))){
+                    start--;
+                }
+                return document.getText(start, end-start);
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+                return "";
+            }
+        }
+    }
+
+    /**
+     * Runnable to read back the word, sentence or line before readBackOffset
+     */
+    private class ReadBackAction implements Runnable{
+        /**
+         * The read back key that was pressed
+         */
+        private final int keyCode;
+
+        /**
+         * Constructs a new ReadBackAction
+         * @param keyCode the read back key that was pressed, it determines what is read back
+         */
+        ReadBackAction(int keyCode) {
+            this.keyCode = keyCode;
+        }
+
+        /**
+         * Finds the word, sentence or line before readBackOffset, ignoring the spaces and punctuation
+         * directly before it, and moves readBackOffset to its start.
+         * Sentences and lines are read with their punctuation, words without.
+         * Makes soundManager play the sounds of its characters in the background.
+         * Nothing is read if there is only white space before readBackOffset.
+         */
+        @Override
+        public void run() {
+            try {
+                int end = Math.min(readBackOffset, document.getLength());
+                int contentEnd = end;
+                while(contentEnd > 0 && isSkipped(document.getText(contentEnd-1, 1).charAt(0))){
+                    contentEnd--;
+                }
+                if(contentEnd == 0){
+                    return;
+                }
+                int start;
+                if(keyCode == READ_WORD_KEY){
+                    start = contentEnd - 1;
+                    while(start > 0 && Character.isLetterOrDigit(document.getText(start-1, 1).charAt(0))){
+                        start--;
+                    }
+                } else if(keyCode == READ_SENTENCE_KEY){
+                    start = boundaryIndex.sentenceStart(contentEnd - 1);
+                } else {
+                    start = boundaryIndex.lineStart(contentEnd - 1);
+                }
+                readBackOffset = start;
+                int textEnd = keyCode == READ_WORD_KEY ? contentEnd : end;
+                String text = document.getText(start, textEnd-start).trim();
+                int generation = readBackGeneration.incrementAndGet();
+                readBackSpeaker.execute(() -> {
+                    for(int i = 0; i < text.length() && readBackGeneration.get() == generation; i++){
+                        soundManager.play(String.valueOf(text.charAt(i)));
+                    }
+                });
+            } catch (BadLocationException e) {
+                e.printStackTrace();
+            }
+        }
+
+        /**
+         * Checks if a character before the text to read back is skipped
+         * @param c the character
+         * @return true if c is white space or, when reading back words or sentences, punctuation
+         */
+        private boolean isSkipped(char c){
+            if(keyCode == READ_LINE_KEY){
+                return Character.isWhitespace(c);
+            }
+            return !Character.isLetterOrDigit(c);
         }
     }
 }
@@ -0,0 +1,127 @@
+package de.aaronsom.blindWriter.writing;
+
+import java.util.Arrays;
+
+/**
+ * An index of the line and sentence boundaries of a document that is only edited at its end,
+ * like the documents written with the {@link BlindWriterKeyListener}.
+ * The offsets of all line breaks and sentence endings are kept in sorted arrays of primitives.
+ * Because text is only appended to or removed from the end, updating the index only touches the end of the
+ * arrays, and the start of the line or sentence at any offset is found by binary search in O(log n).
+ */
+public class BoundaryIndex {
+    /**
+     * The number of boundaries the arrays can hold before they have to grow
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The offsets of all line breaks in ascending order
+     */
+    private int[] lineEnds;
+    /**
+     * The number of valid entries in lineEnds
+     */
+    private int lineEndCount;
+    /**
+     * The offsets of all characters ending a sentence, i.e. '.', '!', '?' and line breaks, in ascending order
+     */
+    private int[] sentenceEnds;
+    /**
+     * The number of valid entries in sentenceEnds
+     */
+    private int sentenceEndCount;
+    /**
+     * The length of the indexed document
+     */
+    private int length;
+
+    /**
+     * Constructs a new {@link BoundaryIndex} of an empty document
+     */
+    public BoundaryIndex(){
+        lineEnds = new int[INITIAL_CAPACITY];
+        sentenceEnds = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Indexes text appended to the end of the document
+     * @param text the appended text
+     */
+    public void append(CharSequence text){
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            if(c == '\n'){
+                lineEnds = add(lineEnds, lineEndCount++, length + i);
+            }
+            if(c == '\n' || c == '.' || c == '!' || c == '?'){
+                sentenceEnds = add(sentenceEnds, sentenceEndCount++, length + i);
+            }
+        }
+        length += text.length();
+    }
+
+    /**
+     * Removes the boundaries of text removed from the end of the document
+     * @param count the number of removed characters
+     */
+    public void remove(int count){
+        length = Math.max(0, length - count);
+        while(lineEndCount > 0 && lineEnds[lineEndCount-1] >= length){
+            lineEndCount--;
+        }
+        while(sentenceEndCount > 0 && sentenceEnds[sentenceEndCount-1] >= length){
+            sentenceEndCount--;
+        }
+    }
+
+    /**
+     * @return the length of the indexed document
+     */
+    public int getLength(){
+        return length;
+    }
+
+    /**
+     * Returns the start of the line containing the character at offset
+     * @param offset the offset of a character that is no line break
+     * @return the offset of the first character of the line
+     */
+    public int lineStart(int offset){
+        return start(lineEnds, lineEndCount, offset);
+    }
+
+    /**
+     * Returns the start of the sentence containing the character at offset
+     * @param offset the offset of a character that does not end a sentence
+     * @return the offset of the first character after the previous sentence ending
+     */
+    public int sentenceStart(int offset){
+        return start(sentenceEnds, sentenceEndCount, offset);
+    }
+
+    /**
+     * Finds the first offset after the last boundary before offset
+     * @param ends the offsets of the boundaries in ascending order
+     * @param count the number of valid entries in ends
+     * @param offset the offset to search from
+     * @return the offset after the last boundary before offset or 0 if there is none
+     */
+    private static int start(int[] ends, int count, int offset){
+        int position = Arrays.binarySearch(ends, 0, count, offset);
+        int before = position >= 0 ? position - 1 : -position - 2;
+        return before >= 0 ? ends[before] + 1 : 0;
+    }
+
+    /**
+     * Stores a boundary at index, growing the array if it is full
+     * @return the array containing the boundary
+     */
+    private static int[] add(int[] ends, int index, int offset){
+        if(index == ends.length){
+            ends = Arrays.copyOf(ends, 2 * ends.length);
+        }
+        ends[index] = offset;
+        return ends;
+    }
+}
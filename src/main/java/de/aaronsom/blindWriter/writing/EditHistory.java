@@ -0,0 +1,195 @@
+package de.aaronsom.blindWriter.writing;
+
+/**
+ * A bounded undo/redo history for the edits made by the {@link BlindWriterKeyListener}.
+ * Instead of snapshots of the document, every edit is recorded as a single operation
+ * (type, code point and offset) in a fixed-capacity ring buffer of primitive arrays.
+ * The memory used is therefore fixed by the capacity and independent of the document size.
+ * Once the buffer is full, recording a new operation overwrites the oldest one.
+ *
+ * Operations are referenced by their slot in the ring buffer. A slot returned by {@link #undo()} or
+ * {@link #redo()} stays valid until the next operation is recorded.
+ */
+public class EditHistory {
+    /**
+     * Operation type of a code point appended at the end of the document
+     */
+    public static final byte APPEND = 1;
+    /**
+     * Operation type of a code point removed from the end of the document
+     */
+    public static final byte REMOVE = 2;
+    /**
+     * Default number of operations that can be undone
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The type of the operation in each slot
+     */
+    private final byte[] types;
+    /**
+     * The appended or removed code point in each slot
+     */
+    private final int[] codePoints;
+    /**
+     * The document offset at which the code point was appended or removed in each slot
+     */
+    private final int[] offsets;
+    /**
+     * The slot of the oldest operation that can still be undone
+     */
+    private int start;
+    /**
+     * The number of operations that can be undone
+     */
+    private int undoCount;
+    /**
+     * The number of undone operations that can be redone.
+     * They occupy the slots directly behind the undoable operations.
+     */
+    private int redoCount;
+
+    /**
+     * Constructs a new {@link EditHistory} with {@link #DEFAULT_CAPACITY}
+     */
+    public EditHistory(){
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@link EditHistory} that remembers at most capacity operations
+     * @param capacity the maximum number of operations to remember
+     */
+    public EditHistory(int capacity){
+        if(capacity <= 0){
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        types = new byte[capacity];
+        codePoints = new int[capacity];
+        offsets = new int[capacity];
+    }
+
+    /**
+     * Records a code point appended at offset. All redoable operations are discarded.
+     * @param codePoint the appended code point
+     * @param offset the offset at which the code point was appended
+     */
+    public void recordAppend(int codePoint, int offset){
+        record(APPEND, codePoint, offset);
+    }
+
+    /**
+     * Records a code point removed at offset. All redoable operations are discarded.
+     * @param codePoint the removed code point
+     * @param offset the offset from which the code point was removed
+     */
+    public void recordRemove(int codePoint, int offset){
+        record(REMOVE, codePoint, offset);
+    }
+
+    /**
+     * Indicates if there is an operation that can be undone
+     * @return true if {@link #undo()} will return a slot
+     */
+    public boolean canUndo(){
+        return undoCount > 0;
+    }
+
+    /**
+     * Indicates if there is an operation that can be redone
+     * @return true if {@link #redo()} will return a slot
+     */
+    public boolean canRedo(){
+        return redoCount > 0;
+    }
+
+    /**
+     * Marks the most recent operation as undone.
+     * The caller is responsible for reverting the operation in the slot.
+     * @return the slot of the undone operation or -1 if there is nothing to undo
+     */
+    public int undo(){
+        if(!canUndo()){
+            return -1;
+        }
+        undoCount--;
+        redoCount++;
+        return slot(undoCount);
+    }
+
+    /**
+     * Marks the most recently undone operation as redone.
+     * The caller is responsible for applying the operation in the slot again.
+     * @return the slot of the redone operation or -1 if there is nothing to redo
+     */
+    public int redo(){
+        if(!canRedo()){
+            return -1;
+        }
+        int slot = slot(undoCount);
+        undoCount++;
+        redoCount--;
+        return slot;
+    }
+
+    /**
+     * Returns the type of the operation in slot
+     * @param slot a slot returned by {@link #undo()} or {@link #redo()}
+     * @return {@link #APPEND} or {@link #REMOVE}
+     */
+    public byte getType(int slot){
+        return types[slot];
+    }
+
+    /**
+     * Returns the code point of the operation in slot
+     * @param slot a slot returned by {@link #undo()} or {@link #redo()}
+     * @return the appended or removed code point
+     */
+    public int getCodePoint(int slot){
+        return codePoints[slot];
+    }
+
+    /**
+     * Returns the offset of the operation in slot
+     * @param slot a slot returned by {@link #undo()} or {@link #redo()}
+     * @return the offset at which the code point was appended or removed
+     */
+    public int getOffset(int slot){
+        return offsets[slot];
+    }
+
+    /**
+     * Forgets all recorded operations
+     */
+    public void clear(){
+        start = 0;
+        undoCount = 0;
+        redoCount = 0;
+    }
+
+    /**
+     * Writes the operation into the slot behind the most recent undoable operation.
+     * If the ring buffer is full, the oldest operation is overwritten.
+     */
+    private void record(byte type, int codePoint, int offset){
+        redoCount = 0;
+        int slot = slot(undoCount);
+        types[slot] = type;
+        codePoints[slot] = codePoint;
+        offsets[slot] = offset;
+        if(undoCount == types.length){
+            start = (start + 1) % types.length;
+        } else {
+            undoCount++;
+        }
+    }
+
+    /**
+     * Converts a position relative to the oldest operation into a slot of the ring buffer
+     */
+    private int slot(int position){
+        return (start + position) % types.length;
+    }
+}
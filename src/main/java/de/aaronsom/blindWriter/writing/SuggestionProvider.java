@@ -0,0 +1,13 @@
+package de.aaronsom.blindWriter.writing;
+
+/**
+ * Provides a completion for the word currently being written, which a {@link BlindWriterKeyListener}
+ * appends when the user accepts it.
+ */
+public interface SuggestionProvider {
+    /**
+     * Returns the current suggestion. Must return quickly, it is called on the Event Dispatch Thread.
+     * @return the suggested complete word in lower case or null if there is no suggestion
+     */
+    public String getSuggestion();
+}
@@ -0,0 +1,19 @@
+package de.aaronsom.blindWriter.writing;
+
+/**
+ * A listener that is informed about all text written or removed by a {@link BlindWriterKeyListener}.
+ * The methods are called on the Event Dispatch Thread and must return quickly.
+ */
+public interface TextListener {
+    /**
+     * Called after text was appended to the end of the document
+     * @param text the appended text
+     */
+    public void textAppended(String text);
+
+    /**
+     * Called after text was removed from the end of the document
+     * @param count the number of removed characters
+     */
+    public void textRemoved(int count);
+}
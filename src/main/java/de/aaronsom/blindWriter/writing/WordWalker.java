@@ -0,0 +1,119 @@
+package de.aaronsom.blindWriter.writing;
+
+import java.util.Arrays;
+
+/**
+ * Follows the word currently being written through a tree of words, e.g. a dictionary,
+ * while the text arrives as a stream of appended and removed characters, see {@link TextListener}.
+ * Every appended letter costs one step in the tree, and every removed letter steps back to the node before it,
+ * so the current node is always known without looking at the text again.
+ * A WordWalker is not thread-safe, it must only be used on the thread that processes the text.
+ * @param <N> the type of the nodes of the tree
+ */
+public class WordWalker<N> {
+    /**
+     * Follows one letter from a node of the tree
+     * @param <N> the type of the nodes of the tree
+     */
+    public interface Step<N> {
+        /**
+         * Follows one letter from a node
+         * @param node a node of the tree, never null
+         * @param letter the next letter of the word in lower case
+         * @return the node reached by letter or null if no word of the tree continues with letter
+         */
+        N child(N node, char letter);
+    }
+
+    /**
+     * Follows the letters in the tree
+     */
+    private final Step<N> step;
+    /**
+     * The node before each letter of the current word, path[depth] is the current node.
+     * A node is null if no word of the tree starts with the letters before it.
+     */
+    private Object[] path;
+    /**
+     * The number of letters in the current word
+     */
+    private int depth;
+    /**
+     * True if characters of the current word were removed beyond its start, so its content is unknown
+     */
+    private boolean unknownWord;
+
+    /**
+     * Constructs a new WordWalker, which starts without a tree until {@link #startWord(Object)} is called
+     * @param step follows the letters in the tree
+     */
+    public WordWalker(Step<N> step){
+        this.step = step;
+        path = new Object[32];
+    }
+
+    /**
+     * Starts a new word, e.g. after a character that ends a word or because another document was opened
+     * @param root the node at which every word starts or null if there is no tree
+     */
+    public void startWord(N root){
+        path[0] = root;
+        depth = 0;
+        unknownWord = false;
+    }
+
+    /**
+     * Follows a letter from the current node. Characters that are no letters are not followed,
+     * the caller decides how they end the word and then starts a new one.
+     * @param c the appended character
+     * @return true if c is a letter and has been followed, false if c is no letter
+     */
+    public boolean append(char c){
+        if(!Character.isLetter(c)){
+            return false;
+        }
+        N node = getNode();
+        if(depth+1 == path.length){
+            path = Arrays.copyOf(path, 2*path.length);
+        }
+        path[++depth] = node != null ? step.child(node, Character.toLowerCase(c)) : null;
+        return true;
+    }
+
+    /**
+     * Steps back over removed characters. Removing the character before the current word makes the
+     * previous word current, whose content is unknown.
+     * @param count the number of removed characters
+     */
+    public void remove(int count){
+        for(int i = 0; i < count; i++){
+            if(depth > 0){
+                depth--;
+            } else {
+                unknownWord = true;
+            }
+        }
+    }
+
+    /**
+     * @return the node reached by the letters of the current word or null if no word of the tree starts with them
+     */
+    @SuppressWarnings("unchecked")
+    public N getNode(){
+        return (N) path[depth];
+    }
+
+    /**
+     * @return the number of letters in the current word
+     */
+    public int getLength(){
+        return depth;
+    }
+
+    /**
+     * @return true if the current word is known completely, false if characters were removed beyond its start
+     */
+    public boolean isKnown(){
+        return !unknownWord;
+    }
+}
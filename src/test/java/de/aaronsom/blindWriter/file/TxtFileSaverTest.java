@@ -61,4 +61,13 @@ class TxtFileSaverTest {
         assertEquals(toAppend.substring(0, toAppend.length()-1), read,
                      "Content of test file should be the appended text without the removed text");
     }
-}
\ No newline at end of file
+
+    @Test
+    void removeReportsRemovedCountTest(){
+        fileSaver.append("ab");
+        assertEquals(1, fileSaver.remove(1), "Unsaved text is removed");
+        fileSaver.save();
+        fileSaver.append("c");
+        assertEquals(1, fileSaver.remove(2), "Saved text is not removed");
+    }
+}
@@ -0,0 +1,65 @@
+package de.aaronsom.blindWriter.prediction;
+
+import de.aaronsom.blindWriter.sound.Signal;
+import de.aaronsom.blindWriter.sound.SoundManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.*;
+
+class PredictionEngineTest {
+
+    SoundManager soundManager;
+    PredictionEngine predictionEngine;
+
+    @BeforeEach
+    void init(){
+        soundManager = mock(SoundManager.class);
+        predictionEngine = new PredictionEngine(soundManager);
+        predictionEngine.loadIndex(() -> {
+            Map<String, Integer> wordFrequencies = new HashMap<>();
+            PrefixIndex.countWords(new StringReader("haus haus haustür"), wordFrequencies);
+            return new PrefixIndex(wordFrequencies, PrefixIndex.DEFAULT_COMPLETION_COUNT);
+        });
+    }
+
+    @Test
+    void suggestionAfterMinPrefixLengthTest() throws InterruptedException {
+        predictionEngine.textAppended("ha");
+        Thread.sleep(100);
+        assertNull(predictionEngine.getSuggestion(), "No suggestion for short prefixes");
+        predictionEngine.textAppended("u");
+        Thread.sleep(100);
+        assertEquals("haus", predictionEngine.getSuggestion(), "Most frequent completion is suggested");
+        verify(soundManager, timeout(1000)).play(Signal.SUGGESTION);
+        verify(soundManager, timeout(1000)).play("s");
+    }
+
+    @Test
+    void completedWordIsNotSuggestedTest() throws InterruptedException {
+        predictionEngine.textAppended("Haus");
+        Thread.sleep(100);
+        assertEquals("haustür", predictionEngine.getSuggestion(), "Only completions longer than the word are suggested");
+    }
+
+    @Test
+    void wordEndClearsSuggestionTest() throws InterruptedException {
+        predictionEngine.textAppended("hau ");
+        Thread.sleep(100);
+        assertNull(predictionEngine.getSuggestion(), "No suggestion after the word has ended");
+    }
+
+    @Test
+    void removalClearsSuggestionTest() throws InterruptedException {
+        predictionEngine.textAppended("hau");
+        predictionEngine.textRemoved(1);
+        Thread.sleep(100);
+        assertNull(predictionEngine.getSuggestion(), "No suggestion after a removal");
+    }
+}
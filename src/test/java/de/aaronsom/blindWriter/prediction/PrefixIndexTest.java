@@ -0,0 +1,59 @@
+package de.aaronsom.blindWriter.prediction;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixIndexTest {
+
+    PrefixIndex prefixIndex;
+
+    @BeforeEach
+    void init() throws IOException {
+        Map<String, Integer> wordFrequencies = new HashMap<>();
+        PrefixIndex.countWords(new StringReader("Haus, Hase. Hase haus\nhaustür hase Hand"), wordFrequencies);
+        prefixIndex = new PrefixIndex(wordFrequencies, 2);
+    }
+
+    PrefixIndex.Node walk(String prefix){
+        PrefixIndex.Node node = prefixIndex.getRoot();
+        for(int i = 0; i < prefix.length() && node != null; i++){
+            node = node.child(prefix.charAt(i));
+        }
+        return node;
+    }
+
+    @Test
+    void countWordsTest() throws IOException {
+        Map<String, Integer> wordFrequencies = new HashMap<>();
+        PrefixIndex.countWords(new StringReader("Das Haus, das Haus."), wordFrequencies);
+        assertEquals(2, (int) wordFrequencies.get("haus"), "Words are counted in lower case");
+        assertEquals(2, wordFrequencies.size(), "Punctuation is no word");
+    }
+
+    @Test
+    void mostFrequentCompletionFirstTest(){
+        PrefixIndex.Node node = walk("ha");
+        assertEquals(2, node.getCompletionCount(), "Only the requested number of completions is cached");
+        assertEquals("hase", node.getCompletion(0), "Most frequent word comes first");
+        assertEquals("haus", node.getCompletion(1), "Second most frequent word comes second");
+    }
+
+    @Test
+    void completionsOfLongerPrefixTest(){
+        PrefixIndex.Node node = walk("hau");
+        assertEquals("haus", node.getCompletion(0), "Word itself is a completion of its prefix");
+        assertEquals("haustür", node.getCompletion(1), "Longer word is a completion of the prefix");
+    }
+
+    @Test
+    void unknownPrefixTest(){
+        assertNull(walk("hx"), "No node for a prefix without words");
+    }
+}
@@ -0,0 +1,208 @@
+package de.aaronsom.blindWriter.server;
+
+import de.aaronsom.blindWriter.sound.AudioOutput;
+import de.aaronsom.blindWriter.sound.ClipLoader;
+import de.aaronsom.blindWriter.sound.ClipPreprocessor;
+import de.aaronsom.blindWriter.sound.SoundManager;
+import de.aaronsom.blindWriter.sound.SoundOutput;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import java.awt.event.KeyEvent;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WritingServerTest {
+
+    File documentsDirectory;
+    WritingServer server;
+
+    @BeforeEach
+    void init() throws IOException {
+        documentsDirectory = Files.createTempDirectory("blind-writer-server-test").toFile();
+        server = startServer(new SoundManager(new ClipLoader(new ClipPreprocessor(), null),
+                                              AudioOutput.createDefault()), 2);
+    }
+
+    @AfterEach
+    void cleanUp() throws InterruptedException {
+        server.stop();
+        for(File file : documentsDirectory.listFiles()){
+            file.delete();
+        }
+        documentsDirectory.delete();
+    }
+
+    @Test
+    void sessionWritesDocumentTest() throws Exception {
+        WritingClient client = connect("brief");
+        type(client, 'h');
+        type(client, 'i');
+        client.save();
+        client.close();
+        assertEquals("hi", read("brief"), "Typed text is saved to the document of the session");
+    }
+
+    @Test
+    void sessionAppendsToExistingDocumentTest() throws Exception {
+        Files.write(new File(documentsDirectory, "brief.txt").toPath(), "ab".getBytes(StandardCharsets.UTF_8));
+        WritingClient client = connect("brief");
+        type(client, 'c');
+        client.close();
+        assertEquals("abc", read("brief"), "Unsaved changes are saved when the client disconnects");
+    }
+
+    @Test
+    void invalidDocumentNameTest() throws Exception {
+        WritingClient client = connect("../brief");
+        type(client, 'a');
+        client.close();
+        server.stop();
+        assertFalse(new File(documentsDirectory.getParentFile(), "brief.txt").exists(),
+                    "Documents outside the documents directory are not created");
+        assertEquals(0, documentsDirectory.listFiles().length, "No document is created for an invalid name");
+    }
+
+    @Test
+    void manySessionsTest() throws Exception {
+        List<WritingClient> clients = new ArrayList<>();
+        for(int i = 0; i < 50; i++){
+            clients.add(connect("schueler" + i));
+        }
+        for(WritingClient client : clients){
+            type(client, 'x');
+        }
+        assertTrue(countServerThreads() <= 3, "Sessions share the selector thread and the two workers of the server");
+        for(WritingClient client : clients){
+            type(client, 'y');
+            client.close();
+        }
+        assertEquals(0, server.getSessionCount(), "All sessions are closed");
+        for(int i = 0; i < 50; i++){
+            assertEquals("xy", read("schueler" + i), "Every session writes its own document");
+        }
+    }
+
+    @Test
+    void documentOpenInAnotherSessionIsRejectedTest() throws Exception {
+        WritingClient client = connect("brief");
+        type(client, 'a');
+        client.save();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while(new File(documentsDirectory, "brief.txt").length() == 0){
+                Thread.sleep(10);
+            }
+        }, "First session opens the document");
+        try(Socket socket = new Socket("localhost", server.getPort())){
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            output.writeByte(Protocol.OPEN);
+            output.writeUTF("brief");
+            output.flush();
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertEquals(-1, socket.getInputStream().read()),
+                                      "Server closes a connection opening a document that is already open");
+        }
+        type(client, 'b');
+        client.close();
+        assertEquals("ab", read("brief"), "First session keeps editing the document");
+        WritingClient reopened = connect("brief");
+        type(reopened, 'c');
+        reopened.close();
+        assertEquals("abc", read("brief"), "Document can be opened again once its session is closed");
+    }
+
+    @Test
+    void slowClientDoesNotStallOtherSessionsTest() throws Exception {
+        server.stop();
+        server = startServer(new LongSoundManager(pcm -> {}), 1);
+        CountDownLatch listening = new CountDownLatch(1);
+        WritingClient slowClient = new WritingClient("localhost", server.getPort(), "langsam", pcm -> {
+            try{
+                listening.await();
+            } catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        });
+        for(int i = 0; i < 300; i++){
+            type(slowClient, 'a');
+        }
+        slowClient.save();
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while(new File(documentsDirectory, "langsam.txt").length() < 300){
+                Thread.sleep(10);
+            }
+        }, "Session processes all key events while its client does not read the sounds");
+        WritingClient client = connect("schnell");
+        type(client, 'x');
+        assertTimeoutPreemptively(Duration.ofSeconds(10), client::close,
+                                  "Other session finishes while a client does not read its sounds");
+        assertEquals("x", read("schnell"), "Session of the other client writes its document");
+        listening.countDown();
+        slowClient.close();
+    }
+
+    WritingServer startServer(SoundManager soundManager, int workerThreads) throws IOException {
+        WritingServer writingServer = new WritingServer(documentsDirectory, soundManager, workerThreads);
+        writingServer.start(0);
+        return writingServer;
+    }
+
+    WritingClient connect(String documentName) throws IOException {
+        return new WritingClient("localhost", server.getPort(), documentName, pcm -> {});
+    }
+
+    void type(WritingClient client, char keyChar) throws IOException {
+        int keyCode = KeyEvent.getExtendedKeyCodeForChar(keyChar);
+        for(int i = 0; i < 2; i++){
+            client.sendKeyPressed(keyCode, keyChar, false);
+            client.sendKeyReleased(keyCode);
+        }
+    }
+
+    long countServerThreads(){
+        return Thread.getAllStackTraces().keySet().stream()
+                     .filter(thread -> thread.getName().startsWith("session-"))
+                     .count();
+    }
+
+    String read(String documentName) throws IOException {
+        return new String(Files.readAllBytes(new File(documentsDirectory, documentName + ".txt").toPath()),
+                          StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Plays a sound of 256 KB for every key, so the sounds of a client that does not read them fill the connection
+     */
+    static class LongSoundManager extends SoundManager {
+        final SoundOutput output;
+
+        LongSoundManager(SoundOutput output){
+            super(new ClipLoader(new ClipPreprocessor(), null), AudioOutput.createDefault());
+            this.output = output;
+        }
+
+        @Override
+        public SoundManager withOutput(SoundOutput soundOutput){
+            return new LongSoundManager(soundOutput);
+        }
+
+        @Override
+        public void play(String key){
+            AudioFormat format = new AudioFormat(44100, 16, 1, true, false);
+            output.play(new AudioInputStream(new ByteArrayInputStream(new byte[256 * 1024]), format, 128 * 1024));
+        }
+    }
+}
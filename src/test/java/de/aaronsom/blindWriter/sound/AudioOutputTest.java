@@ -0,0 +1,137 @@
+package de.aaronsom.blindWriter.sound;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.SourceDataLine;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioOutputTest {
+
+    static final AudioFormat FORMAT = new AudioFormat(44100, 16, 1, true, false);
+
+    Preferences preferences;
+    AudioOutput audioOutput;
+
+    @BeforeEach
+    void init(){
+        preferences = Preferences.userRoot().node("de/aaronsom/blindWriter/audioOutputTest");
+        audioOutput = new AudioOutput(preferences);
+    }
+
+    @AfterEach
+    void cleanUp() throws BackingStoreException {
+        preferences.removeNode();
+    }
+
+    @Test
+    void uncalibratedTest(){
+        assertFalse(audioOutput.isCalibrated(), "New output is not calibrated");
+        assertEquals(AudioOutput.DEFAULT_BUFFER_MILLIS, audioOutput.getBufferMillis(),
+                     "Uncalibrated output uses the default buffer size");
+    }
+
+    @Test
+    void bufferSizeIsPersistedTest(){
+        audioOutput.setBufferMillis(20);
+        AudioOutput restored = new AudioOutput(preferences);
+        assertTrue(restored.isCalibrated(), "Output with a persisted buffer size is calibrated");
+        assertEquals(20, restored.getBufferMillis(), "Buffer size is restored");
+    }
+
+    @Test
+    void backOffAfterUnderrunsTest(){
+        audioOutput.setBufferMillis(20);
+        for(int i = 1; i < AudioOutput.UNDERRUNS_BEFORE_BACK_OFF; i++){
+            audioOutput.reportUnderrun(20);
+        }
+        assertEquals(20, audioOutput.getBufferMillis(), "Few underruns keep the buffer size");
+        audioOutput.reportUnderrun(20);
+        assertEquals(40, audioOutput.getBufferMillis(), "Repeated underruns double the buffer size");
+        assertEquals(40, new AudioOutput(preferences).getBufferMillis(), "Increased buffer size is persisted");
+    }
+
+    @Test
+    void underrunsOfOldBufferSizeAreIgnoredTest(){
+        audioOutput.setBufferMillis(40);
+        for(int i = 0; i < AudioOutput.UNDERRUNS_BEFORE_BACK_OFF; i++){
+            audioOutput.reportUnderrun(20);
+        }
+        assertEquals(40, audioOutput.getBufferMillis(), "Underruns of lines with an old buffer size are ignored");
+        assertEquals(AudioOutput.UNDERRUNS_BEFORE_BACK_OFF, audioOutput.getTotalUnderruns(),
+                     "Ignored underruns are still counted");
+    }
+
+    @Test
+    void backOffIsLimitedTest(){
+        audioOutput.setBufferMillis(AudioOutput.MAX_BUFFER_MILLIS);
+        for(int i = 0; i < AudioOutput.UNDERRUNS_BEFORE_BACK_OFF; i++){
+            audioOutput.reportUnderrun(AudioOutput.MAX_BUFFER_MILLIS);
+        }
+        assertEquals(AudioOutput.MAX_BUFFER_MILLIS, audioOutput.getBufferMillis(), "Buffer size does not exceed the maximum");
+    }
+
+    @Test
+    void linesAreReusedTest(){
+        List<AtomicBoolean> closedLines = new ArrayList<>();
+        AudioOutput output = fakeOutput(closedLines);
+        output.play(sound());
+        output.play(sound());
+        assertEquals(1, closedLines.size(), "Consecutive sounds are written into the same line");
+        assertFalse(closedLines.get(0).get(), "Idle line stays open");
+    }
+
+    @Test
+    void bufferSizeChangeReplacesLineTest(){
+        List<AtomicBoolean> closedLines = new ArrayList<>();
+        AudioOutput output = fakeOutput(closedLines);
+        output.play(sound());
+        output.setBufferMillis(40);
+        output.play(sound());
+        assertEquals(2, closedLines.size(), "A line with the new buffer size is opened");
+        assertTrue(closedLines.get(0).get(), "Line with the old buffer size is closed");
+        assertFalse(closedLines.get(1).get(), "Line with the new buffer size stays open");
+    }
+
+    private AudioInputStream sound(){
+        return new AudioInputStream(new ByteArrayInputStream(new byte[8820]), FORMAT, 4410);
+    }
+
+    /**
+     * Creates an output whose lines accept all data immediately
+     * @param closedLines receives a flag for every opened line that is set once the line is closed
+     */
+    private AudioOutput fakeOutput(List<AtomicBoolean> closedLines){
+        return new AudioOutput(preferences){
+            @Override
+            SourceDataLine openLine(AudioFormat format, int bufferMillis){
+                AtomicBoolean closed = new AtomicBoolean();
+                closedLines.add(closed);
+                int bufferSize = (int) (format.getFrameRate() * bufferMillis / 1000) * format.getFrameSize();
+                return (SourceDataLine) Proxy.newProxyInstance(AudioOutputTest.class.getClassLoader(),
+                                                               new Class<?>[]{SourceDataLine.class},
+                                                               (proxy, method, args) -> {
+                    switch(method.getName()){
+                        case "getBufferSize": return bufferSize;
+                        case "getFormat": return format;
+                        case "available": return 0;
+                        case "write": return args[2];
+                        case "close": closed.set(true); return null;
+                        default: return null;
+                    }
+                });
+            }
+        };
+    }
+}
@@ -0,0 +1,94 @@
+package de.aaronsom.blindWriter.sound;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClipCacheTest {
+
+    @Test
+    void clipsAreStoredOffHeapTest(){
+        ClipCache clipCache = new ClipCache(1000, ClipEncoding.MU_LAW);
+        ClipCache.Slot slot = clipCache.add("a", clip(100), () -> null);
+        assertEquals(100, clipCache.getStoredBytes(), "Stored bytes are counted");
+        assertTrue(clipCache.get(slot) != null, "Stored clip is returned");
+        assertEquals(200, slot.getPcmBytes(), "Size as 16 bit PCM is reported");
+    }
+
+    @Test
+    void leastRecentlyPlayedClipIsEvictedTest(){
+        ClipCache clipCache = new ClipCache(500, ClipEncoding.PCM_16);
+        ClipCache.Slot a = clipCache.add("a", clip(100), () -> null);
+        ClipCache.Slot b = clipCache.add("b", clip(100), () -> null);
+        clipCache.get(a);
+        clipCache.add("c", clip(100), () -> null);
+        assertEquals(200, clipCache.getStoredBytes(a), "Recently played clip is kept");
+        assertEquals(0, clipCache.getStoredBytes(b), "Least recently played clip is evicted");
+        assertTrue(clipCache.getStoredBytes() <= clipCache.getBudgetBytes(), "Budget is kept");
+    }
+
+    @Test
+    void storedBytesDoNotMarkClipAsPlayedTest(){
+        ClipCache clipCache = new ClipCache(500, ClipEncoding.PCM_16);
+        ClipCache.Slot a = clipCache.add("a", clip(100), () -> null);
+        ClipCache.Slot b = clipCache.add("b", clip(100), () -> null);
+        assertEquals(200, clipCache.getStoredBytes(a), "Size of a stored clip is reported");
+        clipCache.add("c", clip(100), () -> null);
+        assertEquals(0, clipCache.getStoredBytes(a), "Reporting the size does not keep a clip from being evicted");
+        assertEquals(200, clipCache.getStoredBytes(b), "Clip played more recently is kept");
+    }
+
+    @Test
+    void evictedClipIsDecodedInBackgroundTest(){
+        ClipCache clipCache = new ClipCache(300, ClipEncoding.PCM_16);
+        List<Runnable> decodings = new ArrayList<>();
+        clipCache.setDecoder(decodings::add);
+        AtomicInteger loads = new AtomicInteger();
+        ClipCache.Slot a = clipCache.add("a", clip(100), () -> {
+            loads.incrementAndGet();
+            return clip(100);
+        });
+        clipCache.add("b", clip(100), () -> null);
+        assertEquals(0, clipCache.getStoredBytes(a), "Clip is evicted");
+        assertNull(clipCache.get(a), "Evicted clip is not played while it is decoded again");
+        assertNull(clipCache.get(a), "Evicted clip is not played while it is decoded again");
+        assertEquals(1, decodings.size(), "Clip is decoded again in the background once");
+        assertEquals(0, loads.get(), "Clip is not decoded on the playing thread");
+        decodings.get(0).run();
+        StoredClip reloaded = clipCache.get(a);
+        assertEquals(100, reloaded.getSampleCount(), "Evicted clip is decoded again");
+        assertEquals(1, loads.get(), "Clip is decoded once");
+        assertSame(reloaded, clipCache.get(a), "Decoded clip is stored again");
+    }
+
+    @Test
+    void clipThatCannotBeDecodedTest(){
+        ClipCache clipCache = new ClipCache(300, ClipEncoding.PCM_16);
+        ClipCache.Slot a = clipCache.add("a", clip(100), () -> null);
+        clipCache.add("b", clip(100), () -> null);
+        assertNull(clipCache.get(a), "Evicted clip that cannot be decoded is not played");
+    }
+
+    @Test
+    void removedClipIsNotDecodedAgainTest(){
+        ClipCache clipCache = new ClipCache(1000, ClipEncoding.PCM_16);
+        AtomicInteger loads = new AtomicInteger();
+        ClipCache.Slot a = clipCache.add("a", clip(100), () -> {
+            loads.incrementAndGet();
+            return clip(100);
+        });
+        clipCache.add("b", clip(100), () -> null);
+        clipCache.remove(a);
+        assertEquals(200, clipCache.getStoredBytes(), "Stored bytes drop by the removed clip");
+        assertNull(clipCache.get(a), "Removed clip is not played");
+        assertEquals(0, loads.get(), "Removed clip is not decoded again");
+    }
+
+    SoundClip clip(int sampleCount){
+        return new SoundClip(new short[sampleCount], 44100, 1);
+    }
+}
@@ -0,0 +1,83 @@
+package de.aaronsom.blindWriter.sound;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioInputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClipEncodingTest {
+
+    @Test
+    void pcmIsLosslessTest() throws IOException {
+        SoundClip clip = sine(1, 1000);
+        assertArrayEquals(clip.getSamples(), expand(clip, ClipEncoding.PCM_16), "16 bit PCM is stored without loss");
+    }
+
+    @Test
+    void muLawIsCloseTest() throws IOException {
+        SoundClip clip = sine(1, 1000);
+        short[] expanded = expand(clip, ClipEncoding.MU_LAW);
+        for(int i = 0; i < expanded.length; i++){
+            int tolerance = Math.max(8, Math.abs(clip.getSamples()[i]) / 16);
+            assertTrue(Math.abs(expanded[i] - clip.getSamples()[i]) <= tolerance, "µ-law error is below 1/16 of the sample");
+        }
+        assertEquals(1000, StoredClip.encode(clip, ClipEncoding.MU_LAW).getSizeBytes(), "µ-law takes one byte per sample");
+    }
+
+    @Test
+    void adpcmFollowsSignalTest() throws IOException {
+        SoundClip clip = sine(2, 4000);
+        short[] expanded = expand(clip, ClipEncoding.IMA_ADPCM);
+        assertEquals(clip.getSamples().length, expanded.length, "Every sample is expanded");
+        for(int i = 2000; i < expanded.length; i++){
+            assertTrue(Math.abs(expanded[i] - clip.getSamples()[i]) < 1000, "ADPCM follows the signal in every channel");
+        }
+        assertEquals(2000, StoredClip.encode(clip, ClipEncoding.IMA_ADPCM).getSizeBytes(),
+                     "ADPCM takes half a byte per sample");
+    }
+
+    @Test
+    void expandInSmallChunksTest() throws IOException {
+        SoundClip clip = sine(2, 4000);
+        AudioInputStream stream = StoredClip.encode(clip, ClipEncoding.IMA_ADPCM).openStream();
+        byte[] expanded = new byte[clip.getSamples().length * 2];
+        int offset = 0;
+        int read;
+        while((read = stream.read(expanded, offset, Math.min(12, expanded.length - offset))) > 0){
+            offset += read;
+        }
+        assertArrayEquals(toBytes(expand(clip, ClipEncoding.IMA_ADPCM)), expanded,
+                          "Expanding in chunks gives the same samples as expanding at once");
+    }
+
+    SoundClip sine(int channels, int sampleCount){
+        short[] samples = new short[sampleCount];
+        for(int i = 0; i < sampleCount; i++){
+            double phase = 2 * Math.PI * 440 * (i / channels) / 44100 + i % channels;
+            samples[i] = (short) (20000 * Math.sin(phase));
+        }
+        return new SoundClip(samples, 44100, channels);
+    }
+
+    short[] expand(SoundClip clip, ClipEncoding encoding) throws IOException {
+        AudioInputStream stream = StoredClip.encode(clip, encoding).openStream();
+        byte[] bytes = new byte[(int) stream.getFrameLength() * stream.getFormat().getFrameSize()];
+        int offset = 0;
+        int read;
+        while(offset < bytes.length && (read = stream.read(bytes, offset, bytes.length - offset)) > 0){
+            offset += read;
+        }
+        assertEquals(-1, stream.read(new byte[stream.getFormat().getFrameSize()]), "Stream ends after the last sample");
+        short[] samples = new short[bytes.length / 2];
+        for(int i = 0; i < samples.length; i++){
+            samples[i] = (short) (bytes[2*i] & 0xff | bytes[2*i+1] << 8);
+        }
+        return samples;
+    }
+
+    byte[] toBytes(short[] samples){
+        return new SoundClip(samples, 44100, 1).toBytes();
+    }
+}
@@ -0,0 +1,66 @@
+package de.aaronsom.blindWriter.sound;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClipPreprocessorTest {
+
+    static final int SAMPLE_RATE = 1000;
+
+    ClipPreprocessor clipPreprocessor;
+
+    @BeforeEach
+    void init(){
+        clipPreprocessor = new ClipPreprocessor();
+    }
+
+    /**
+     * Creates a mono clip with silence before and after a constant tone of the given amplitude
+     */
+    SoundClip clipWithSilence(int leadingFrames, int toneFrames, int trailingFrames, short amplitude){
+        short[] samples = new short[leadingFrames + toneFrames + trailingFrames];
+        for(int i = leadingFrames; i < leadingFrames + toneFrames; i++){
+            samples[i] = amplitude;
+        }
+        return new SoundClip(samples, SAMPLE_RATE, 1);
+    }
+
+    @Test
+    void trimRemovesSilenceTest(){
+        SoundClip trimmed = clipPreprocessor.trim(clipWithSilence(100, 50, 200, (short) 10000));
+        assertEquals(60, trimmed.getFrameCount(), "Only the tone and 5 ms padding on each side are kept");
+        assertEquals(5, clipPreprocessor.findFirstAudibleFrame(trimmed), "The tone starts after the padding");
+    }
+
+    @Test
+    void trimKeepsSilentClipTest(){
+        SoundClip silent = new SoundClip(new short[100], SAMPLE_RATE, 1);
+        assertSame(silent, clipPreprocessor.trim(silent), "A silent clip is not trimmed away");
+    }
+
+    @Test
+    void normalizeScalesToTargetPeakTest(){
+        SoundClip normalized = clipPreprocessor.normalize(clipWithSilence(0, 10, 0, (short) 1000));
+        assertEquals(Math.round(ClipPreprocessor.DEFAULT_TARGET_PEAK * Short.MAX_VALUE),
+                     normalized.getSamples()[0], "The peak is scaled to the target peak");
+    }
+
+    @Test
+    void timeCompressShortensClipTest(){
+        ClipPreprocessor fastPreprocessor = new ClipPreprocessor(ClipPreprocessor.DEFAULT_SILENCE_THRESHOLD,
+                                                                 ClipPreprocessor.DEFAULT_TARGET_PEAK, 2);
+        SoundClip compressed = fastPreprocessor.timeCompress(clipWithSilence(0, 1000, 0, (short) 10000));
+        assertEquals(500, compressed.getFrameCount(), 20, "Tempo 2 halves the length");
+        assertEquals(10000, compressed.getSamples()[compressed.getFrameCount()/2], "Overlapping windows keep the level");
+    }
+
+    @Test
+    void processStereoClipTest(){
+        short[] samples = {0, 0, 0, 0, 20000, -20000, 0, 0};
+        SoundClip processed = clipPreprocessor.process(new SoundClip(samples, SAMPLE_RATE, 2));
+        assertEquals(2, processed.getChannels(), "Channels are kept");
+        assertEquals(0, processed.getSamples().length % 2, "Frames are not split");
+    }
+}
@@ -0,0 +1,139 @@
+package de.aaronsom.blindWriter.sound;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoundPackTest {
+
+    File soundPackDirectory;
+    ClipLoader clipLoader;
+    Preferences preferences;
+
+    @BeforeEach
+    void init() throws IOException {
+        preferences = Preferences.userRoot().node("de/aaronsom/blindWriter/soundPackTest");
+        clipLoader = new ClipLoader(new ClipPreprocessor(), null);
+        soundPackDirectory = Files.createTempDirectory("blind-writer-test").toFile();
+        Files.write(new File(soundPackDirectory, "a.mp3").toPath(), new byte[]{1, 2, 3});
+        Files.write(new File(soundPackDirectory, "default.mp3").toPath(), new byte[]{4, 5, 6});
+    }
+
+    @AfterEach
+    void cleanUp() throws BackingStoreException {
+        for(File file : soundPackDirectory.listFiles()){
+            file.delete();
+        }
+        soundPackDirectory.delete();
+        preferences.removeNode();
+    }
+
+    @Test
+    void resourcePackTest(){
+        SoundPack soundPack = SoundPack.fromResources("/de.aaronsom.blindWriter.sound/", clipLoader);
+        assertTrue(soundPack.hasSound("a"), "Bundled pack has a sound for 'a'");
+        assertTrue(soundPack.hasSound("\n"), "Bundled pack has a sound for enter");
+    }
+
+    @Test
+    void directoryPackTest(){
+        SoundPack soundPack = SoundPack.fromDirectory(soundPackDirectory, clipLoader);
+        assertEquals(soundPackDirectory.getName(), soundPack.getName(), "Pack is named after its directory");
+        assertTrue(soundPack.hasSound("a"), "Pack has a sound for 'a'");
+        assertFalse(soundPack.hasSound("b"), "Pack has no sound for 'b'");
+    }
+
+    @Test
+    void missingSoundFallsBackToDefaultTest(){
+        SoundPack soundPack = SoundPack.fromDirectory(soundPackDirectory, clipLoader);
+        assertSame(soundPack.getPlayer("unsupported"), soundPack.getPlayer("b"),
+                   "Key without a sound file uses the default sound");
+    }
+
+    @Test
+    void signalWithoutSoundFilePlaysGeneratedToneTest(){
+        SoundPack soundPack = SoundPack.fromDirectory(soundPackDirectory, clipLoader);
+        Set<String> tones = new HashSet<>();
+        for(Signal signal : Signal.values()){
+            AtomicInteger playedBytes = new AtomicInteger();
+            soundPack.getPlayer(signal).play(pcm -> {
+                try{
+                    byte[] buffer = new byte[4096];
+                    int read;
+                    while((read = pcm.read(buffer)) != -1){
+                        playedBytes.addAndGet(read);
+                    }
+                } catch(IOException e){
+                    fail(e.toString());
+                }
+            });
+            assertTrue(playedBytes.get() > 0, "Signal " + signal + " without a sound file is audible");
+            tones.add(Arrays.toString(signal.createTone().getSamples()));
+        }
+        assertEquals(Signal.values().length, tones.size(), "Every signal has its own tone");
+    }
+
+    @Test
+    void loadSoundPackSwapsPackTest() throws Exception {
+        SoundManager soundManager = new SoundManager(clipLoader, new AudioOutput(preferences));
+        SoundPack loaded = soundManager.loadSoundPack(soundPackDirectory).get();
+        assertSame(loaded, soundManager.getSoundPack(), "Loaded pack replaces the current pack");
+    }
+
+    @Test
+    void loadSoundPackReleasesOldPackTest() throws Exception {
+        SoundManager soundManager = new SoundManager(clipLoader, new AudioOutput(preferences));
+        SoundPack bundled = soundManager.getSoundPack();
+        SoundPack first = soundManager.loadSoundPack(soundPackDirectory).get();
+        long storedBytes = clipLoader.getClipCache().getStoredBytes();
+        assertEquals(0, bundled.getStoredBytes(), "Replaced pack is removed from the cache");
+        assertEquals(first.getStoredBytes(), storedBytes, "Cache only holds the current pack");
+        soundManager.loadSoundPack(soundPackDirectory).get();
+        assertEquals(0, first.getStoredBytes(), "Replaced pack is removed from the cache");
+        assertEquals(storedBytes, clipLoader.getClipCache().getStoredBytes(),
+                     "Stored bytes drop back after loading the same pack again");
+    }
+
+    @Test
+    void loadSoundPackDoesNotWaitForCalibrationTest() throws Exception {
+        CountDownLatch calibrating = new CountDownLatch(1);
+        CountDownLatch finishCalibration = new CountDownLatch(1);
+        AudioOutput audioOutput = new AudioOutput(preferences){
+            @Override
+            SourceDataLine openLine(AudioFormat format, int bufferMillis) throws LineUnavailableException {
+                calibrating.countDown();
+                try{
+                    finishCalibration.await();
+                } catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+                throw new LineUnavailableException("No line in tests");
+            }
+        };
+        SoundManager soundManager = new SoundManager(clipLoader, audioOutput);
+        Future<Integer> calibration = soundManager.calibrate();
+        calibrating.await();
+        SoundPack loaded = soundManager.loadSoundPack(soundPackDirectory).get(5, TimeUnit.SECONDS);
+        assertSame(loaded, soundManager.getSoundPack(), "Pack is loaded while the output is calibrated");
+        finishCalibration.countDown();
+        assertEquals(-1, (int) calibration.get(), "Calibration without a line chooses no buffer size");
+    }
+}
@@ -0,0 +1,72 @@
+package de.aaronsom.blindWriter.spelling;
+
+import de.aaronsom.blindWriter.sound.Signal;
+import de.aaronsom.blindWriter.sound.SoundManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.mockito.Mockito.*;
+
+class SpellCheckerTest {
+
+    File dictionaryFile;
+    SoundManager soundManager;
+    SpellChecker spellChecker;
+
+    @BeforeEach
+    void init() throws IOException {
+        dictionaryFile = File.createTempFile("blind-writer-test", "dawg");
+        TrieDictionary.compile(new BufferedReader(new StringReader("haus\nmaus\n")), dictionaryFile);
+        soundManager = mock(SoundManager.class);
+        spellChecker = new SpellChecker(() -> TrieDictionary.load(dictionaryFile), soundManager);
+    }
+
+    @AfterEach
+    void cleanUp(){
+        dictionaryFile.delete();
+    }
+
+    @Test
+    void correctWordTest() throws InterruptedException {
+        spellChecker.textAppended("Haus ");
+        Thread.sleep(100);
+        verify(soundManager, never()).play(Signal.MISSPELLING);
+    }
+
+    @Test
+    void misspelledWordTest() {
+        spellChecker.textAppended("hau");
+        spellChecker.textAppended("x.");
+        verify(soundManager, timeout(1000)).play(Signal.MISSPELLING);
+    }
+
+    @Test
+    void incompleteWordIsNotCheckedTest() throws InterruptedException {
+        spellChecker.textAppended("hau");
+        Thread.sleep(100);
+        verify(soundManager, never()).play(Signal.MISSPELLING);
+    }
+
+    @Test
+    void correctedWordTest() throws InterruptedException {
+        spellChecker.textAppended("mausx");
+        spellChecker.textRemoved(1);
+        spellChecker.textAppended("\n");
+        Thread.sleep(100);
+        verify(soundManager, never()).play(Signal.MISSPELLING);
+    }
+
+    @Test
+    void missingDictionaryDisablesCheckingTest() throws InterruptedException {
+        spellChecker = new SpellChecker(() -> null, soundManager);
+        spellChecker.textAppended("xyz ");
+        Thread.sleep(100);
+        verify(soundManager, never()).play(Signal.MISSPELLING);
+    }
+}
@@ -0,0 +1,102 @@
+package de.aaronsom.blindWriter.spelling;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrieDictionaryTest {
+
+    File dictionaryFile;
+    TrieDictionary dictionary;
+
+    @BeforeEach
+    void init() throws IOException {
+        dictionaryFile = File.createTempFile("blind-writer-test", "dawg");
+        TrieDictionary.compile(new BufferedReader(new StringReader("Haus\nhaustür\nmaus\n\nmäuse\n")), dictionaryFile);
+        dictionary = TrieDictionary.load(dictionaryFile);
+    }
+
+    @AfterEach
+    void cleanUp(){
+        dictionaryFile.delete();
+    }
+
+    @Test
+    void containsWordsTest(){
+        assertTrue(dictionary.contains("haus"), "Words are stored in lower case");
+        assertTrue(dictionary.contains("haustür"), "Word with a word as prefix is contained");
+        assertTrue(dictionary.contains("mäuse"), "Umlaute are supported");
+    }
+
+    @Test
+    void doesNotContainOtherWordsTest(){
+        assertFalse(dictionary.contains("hau"), "Prefix of a word is no word");
+        assertFalse(dictionary.contains("hausx"), "Word with additional characters is no word");
+        assertFalse(dictionary.contains("laus"), "Word not in the list is no word");
+    }
+
+    @Test
+    void walkCharacterByCharacterTest(){
+        int node = walk("maus");
+        assertTrue(dictionary.isWord(node), "Walking the characters of a word reaches a word end");
+        assertEquals(TrieDictionary.NO_NODE, dictionary.child(node, 'x'), "No word continues with 'x'");
+    }
+
+    @Test
+    void equalSuffixesAreSharedTest(){
+        assertEquals(walk("maus"), walk("mäuse"), "Word ends without continuation are stored once");
+    }
+
+    @Test
+    void loadMissingFileTest(){
+        dictionaryFile.delete();
+        assertThrows(IOException.class, () -> TrieDictionary.load(dictionaryFile));
+    }
+
+    @Test
+    void lowerCaseIgnoresLocaleTest() throws IOException {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try{
+            TrieDictionary.compile(new BufferedReader(new StringReader("IGEL\n")), dictionaryFile);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+        assertTrue(TrieDictionary.load(dictionaryFile).contains("igel"),
+                   "Words are lower cased character by character like the looked up words");
+    }
+
+    @Test
+    void compileReplacesFileAtomicallyTest() throws IOException {
+        File directory = Files.createTempDirectory("blind-writer-test").toFile();
+        File file = new File(directory, "woerterbuch.dawg");
+        try{
+            TrieDictionary.compile(new BufferedReader(new StringReader("haus\n")), file);
+            TrieDictionary.compile(new BufferedReader(new StringReader("maus\n")), file);
+            assertTrue(TrieDictionary.load(file).contains("maus"), "Compiled dictionary replaces the old one");
+            assertEquals(1, directory.listFiles().length, "No temporary file is left behind");
+        } finally {
+            for(File left : directory.listFiles()){
+                left.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    int walk(String word){
+        int node = dictionary.root();
+        for(char c : word.toCharArray()){
+            node = dictionary.child(node, c);
+        }
+        return node;
+    }
+}
@@ -1,14 +1,22 @@
 package de.aaronsom.blindWriter.writing;
 
 import de.aaronsom.blindWriter.file.FileSaver;
+import de.aaronsom.blindWriter.file.TxtFileSaver;
+import de.aaronsom.blindWriter.sound.Signal;
 import de.aaronsom.blindWriter.sound.SoundManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
 import javax.swing.*;
 
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -27,6 +35,7 @@ class BlindWriterKeyListenerTest {
     void init(){
         testTextArea = new JTextArea();
         fileSaver = mock(FileSaver.class);
+        when(fileSaver.remove(anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
         soundManager = mock(SoundManager.class);
         blindWriterKeyListener = new BlindWriterKeyListener(testTextArea, fileSaver, soundManager);
     }
@@ -160,4 +169,214 @@ class BlindWriterKeyListenerTest {
         assertTrue(keyEvent.isConsumed(), "Key events are consumed");
     }
 
+    @Test
+    void undoAppendPressedTwice() throws InterruptedException {
+        pressTwice(KeyEvent.VK_A, 0, 'a');
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        assertEquals("", testTextArea.getText(), "Undo removes the appended character");
+        verify(fileSaver).remove(1);
+        verify(soundManager).play(Signal.UNDO);
+    }
+
+    @Test
+    void undoRemovePressedTwice() throws InterruptedException {
+        testTextArea.append("ab");
+        pressTwice(KeyEvent.VK_BACK_SPACE, 0, '\u0008');
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        assertEquals("ab", testTextArea.getText(), "Undo restores the removed character");
+        verify(fileSaver).append("b");
+    }
+
+    @Test
+    void redoPressedTwice() throws InterruptedException {
+        pressTwice(KeyEvent.VK_A, 0, 'a');
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        pressTwice(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK, '\u0019');
+        Thread.sleep(100);
+        assertEquals("a", testTextArea.getText(), "Redo appends the undone character again");
+        verify(fileSaver, times(2)).append("a");
+        verify(soundManager).play(Signal.REDO);
+    }
+
+    @Test
+    void plainKeyDoesNotConfirmControlKey() throws InterruptedException {
+        pressTwice(KeyEvent.VK_A, 0, 'a');
+        press(KeyEvent.VK_Z, 0, 'z');
+        press(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        assertEquals("a", testTextArea.getText(), "'z' followed by Ctrl+Z neither appends nor undoes");
+        verify(fileSaver, never()).remove(anyInt());
+        verify(soundManager, never()).play(Signal.UNDO);
+    }
+
+    @Test
+    void refusedRedoClearsHistory() throws InterruptedException {
+        testTextArea.append("ab");
+        pressTwice(KeyEvent.VK_BACK_SPACE, 0, '\u0008');
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        when(fileSaver.remove(anyInt())).thenReturn(0);
+        pressTwice(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK, '\u0019');
+        pressTwice(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK, '\u0019');
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        assertEquals("ab", testTextArea.getText(), "Refused redo leaves the document unchanged");
+        verify(soundManager, never()).play(Signal.REDO);
+        verify(soundManager, times(1)).play(Signal.UNDO);
+    }
+
+    @Test
+    void undoWithoutEditPressedTwice() throws InterruptedException {
+        testTextArea.append("a");
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        assertEquals("a", testTextArea.getText(), "Undo without an edit changes nothing");
+        verify(fileSaver, never()).remove(anyInt());
+    }
+
+    @Test
+    void undoRemoveOfSavedTextIsRefused() throws InterruptedException, IOException {
+        File file = File.createTempFile("blind-writer-test", ".txt");
+        Files.write(file.toPath(), "abc".getBytes(StandardCharsets.UTF_8));
+        testTextArea.append("abc");
+        TxtFileSaver txtFileSaver = new TxtFileSaver(file);
+        blindWriterKeyListener = new BlindWriterKeyListener(testTextArea, txtFileSaver, soundManager);
+        pressTwice(KeyEvent.VK_BACK_SPACE, 0, '\u0008');
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        txtFileSaver.save();
+        assertEquals("ab", testTextArea.getText(), "Undo of a saved character is refused");
+        assertEquals("abc", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8),
+                     "Refused undo does not append to the file");
+        verify(soundManager, never()).play(Signal.UNDO);
+        file.delete();
+    }
+
+    @Test
+    void undoAppendAfterSaveIsRefused() throws InterruptedException, IOException {
+        File file = File.createTempFile("blind-writer-test", ".txt");
+        TxtFileSaver txtFileSaver = new TxtFileSaver(file);
+        blindWriterKeyListener = new BlindWriterKeyListener(testTextArea, txtFileSaver, soundManager);
+        pressTwice(KeyEvent.VK_A, 0, 'a');
+        Thread.sleep(100);
+        txtFileSaver.save();
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        txtFileSaver.save();
+        assertEquals("a", testTextArea.getText(), "Undo of a saved character is refused");
+        assertEquals("a", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8),
+                     "Document and file stay the same");
+        file.delete();
+    }
+
+    @Test
+    void backspaceRemovesWholeCodePoint() throws InterruptedException {
+        testTextArea.append("a\ud83d\ude00");
+        pressTwice(KeyEvent.VK_BACK_SPACE, 0, '\u0008');
+        pressTwice(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK, '\u001a');
+        Thread.sleep(100);
+        verify(fileSaver).remove(2);
+        verify(fileSaver).append("\ud83d\ude00");
+        assertEquals("a\ud83d\ude00", testTextArea.getText(), "Surrogate pairs are removed and restored as a whole");
+    }
+
+    @Test
+    void acceptSuggestionKeyAcceptsSuggestion() throws InterruptedException {
+        testTextArea.append("Ha");
+        blindWriterKeyListener.setSuggestionProvider(() -> "haus");
+        press(BlindWriterKeyListener.ACCEPT_SUGGESTION_KEY);
+        Thread.sleep(100);
+        assertEquals("Haus", testTextArea.getText(), "F5 appends the missing letters of the suggestion");
+        verify(fileSaver).append("us");
+    }
+
+    @Test
+    void acceptSuggestionKeyWithoutSuggestion() throws InterruptedException {
+        testTextArea.append("Ha");
+        blindWriterKeyListener.setSuggestionProvider(() -> null);
+        press(BlindWriterKeyListener.ACCEPT_SUGGESTION_KEY);
+        Thread.sleep(100);
+        assertEquals("Ha", testTextArea.getText(), "F5 without a suggestion appends nothing");
+    }
+
+    @Test
+    void tabIsTypedWhileSuggestionIsPending() throws InterruptedException {
+        testTextArea.append("Ha");
+        blindWriterKeyListener.setSuggestionProvider(() -> "haus");
+        pressTwice(KeyEvent.VK_TAB, 0, '\t');
+        Thread.sleep(100);
+        assertEquals("Ha\t", testTextArea.getText(), "Tab is appended even if there is a suggestion");
+    }
+
+    @Test
+    void readBackPreviousWord() {
+        testTextArea.append("Hallo Welt. ");
+        blindWriterKeyListener = new BlindWriterKeyListener(testTextArea, fileSaver, soundManager);
+        press(BlindWriterKeyListener.READ_WORD_KEY);
+        InOrder inOrder = inOrder(soundManager);
+        inOrder.verify(soundManager, timeout(1000)).play("W");
+        inOrder.verify(soundManager, timeout(1000)).play("t");
+        verify(soundManager, never()).play(".");
+        verify(soundManager, never()).play(String.valueOf(KeyEvent.CHAR_UNDEFINED));
+        press(BlindWriterKeyListener.READ_WORD_KEY);
+        inOrder.verify(soundManager, timeout(1000)).play("H");
+        inOrder.verify(soundManager, timeout(1000)).play("o");
+    }
+
+    @Test
+    void readBackPreviousSentence() {
+        testTextArea.append("Ja. Nein!");
+        blindWriterKeyListener = new BlindWriterKeyListener(testTextArea, fileSaver, soundManager);
+        press(BlindWriterKeyListener.READ_SENTENCE_KEY);
+        InOrder inOrder = inOrder(soundManager);
+        inOrder.verify(soundManager, timeout(1000)).play("N");
+        inOrder.verify(soundManager, timeout(1000)).play("!");
+        verify(soundManager, never()).play("J");
+        press(BlindWriterKeyListener.READ_SENTENCE_KEY);
+        inOrder.verify(soundManager, timeout(1000)).play("J");
+        inOrder.verify(soundManager, timeout(1000)).play(".");
+    }
+
+    @Test
+    void readBackPreviousLineOfWrittenText() throws InterruptedException {
+        testTextArea.append("eins\n");
+        blindWriterKeyListener = new BlindWriterKeyListener(testTextArea, fileSaver, soundManager);
+        pressTwice(KeyEvent.VK_Z, 0, 'z');
+        pressTwice(KeyEvent.VK_W, 0, 'w');
+        Thread.sleep(100);
+        reset(soundManager);
+        press(BlindWriterKeyListener.READ_LINE_KEY);
+        InOrder inOrder = inOrder(soundManager);
+        inOrder.verify(soundManager, timeout(1000)).play("z");
+        inOrder.verify(soundManager, timeout(1000)).play("w");
+        verify(soundManager, never()).play("s");
+    }
+
+    private void press(int keyCode){
+        blindWriterKeyListener.keyPressed(new KeyEvent(
+                testTextArea, KeyEvent.KEY_PRESSED, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED));
+        blindWriterKeyListener.keyReleased(new KeyEvent(
+                testTextArea, KeyEvent.KEY_RELEASED, 0, 0, keyCode, KeyEvent.CHAR_UNDEFINED));
+    }
+
+    private void press(int keyCode, int modifiers, char keyChar){
+        blindWriterKeyListener.keyPressed(new KeyEvent(
+                testTextArea, KeyEvent.KEY_PRESSED, 0, modifiers, keyCode, keyChar));
+        blindWriterKeyListener.keyReleased(new KeyEvent(
+                testTextArea, KeyEvent.KEY_RELEASED, 0, modifiers, keyCode, keyChar));
+    }
+
+    private void pressTwice(int keyCode, int modifiers, char keyChar){
+        KeyEvent keyEvent= new KeyEvent(
+                testTextArea, KeyEvent.KEY_PRESSED, 0, modifiers, keyCode, keyChar);
+        KeyEvent keyEventRelease= new KeyEvent(
+                testTextArea, KeyEvent.KEY_RELEASED, 0, modifiers, keyCode, keyChar);
+        blindWriterKeyListener.keyPressed(keyEvent);
+        blindWriterKeyListener.keyReleased(keyEventRelease);
+        blindWriterKeyListener.keyPressed(keyEvent);
+        blindWriterKeyListener.keyReleased(keyEventRelease);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package de.aaronsom.blindWriter.writing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BoundaryIndexTest {
+
+    @Test
+    void lineStartTest(){
+        BoundaryIndex boundaryIndex = new BoundaryIndex();
+        boundaryIndex.append("eins\nzwei\ndrei");
+        assertEquals(0, boundaryIndex.lineStart(2), "First line starts at the beginning");
+        assertEquals(5, boundaryIndex.lineStart(5), "Line starts after the line break");
+        assertEquals(10, boundaryIndex.lineStart(13), "Last line starts after the last line break");
+    }
+
+    @Test
+    void sentenceStartTest(){
+        BoundaryIndex boundaryIndex = new BoundaryIndex();
+        boundaryIndex.append("Ja. Nein! Doch?\nGut");
+        assertEquals(0, boundaryIndex.sentenceStart(1), "First sentence starts at the beginning");
+        assertEquals(3, boundaryIndex.sentenceStart(5), "Sentence starts after the full stop");
+        assertEquals(9, boundaryIndex.sentenceStart(11), "Sentence starts after the exclamation mark");
+        assertEquals(16, boundaryIndex.sentenceStart(17), "A line break ends a sentence");
+    }
+
+    @Test
+    void appendInPiecesTest(){
+        BoundaryIndex boundaryIndex = new BoundaryIndex();
+        for(char c : "eins.\nzwei".toCharArray()){
+            boundaryIndex.append(String.valueOf(c));
+        }
+        assertEquals(10, boundaryIndex.getLength(), "Length is tracked");
+        assertEquals(6, boundaryIndex.lineStart(8), "Boundaries appended one by one are indexed");
+        assertEquals(6, boundaryIndex.sentenceStart(8), "Boundaries appended one by one are indexed");
+    }
+
+    @Test
+    void removeTest(){
+        BoundaryIndex boundaryIndex = new BoundaryIndex();
+        boundaryIndex.append("eins\nzwei\n");
+        boundaryIndex.remove(1);
+        assertEquals(5, boundaryIndex.lineStart(8), "Removing text after a boundary keeps it");
+        boundaryIndex.remove(5);
+        assertEquals(0, boundaryIndex.lineStart(3), "Removed line breaks are no boundaries anymore");
+        boundaryIndex.append(" drei\nvier");
+        assertEquals(10, boundaryIndex.lineStart(12), "Boundaries appended after removing are indexed");
+    }
+
+    @Test
+    void manyBoundariesTest(){
+        BoundaryIndex boundaryIndex = new BoundaryIndex();
+        for(int i = 0; i < 10000; i++){
+            boundaryIndex.append("Satz.\n");
+        }
+        assertEquals(6 * 5000, boundaryIndex.lineStart(6 * 5000 + 2), "Lines are found in large documents");
+        assertEquals(6 * 9999, boundaryIndex.sentenceStart(6 * 9999 + 3), "Sentences are found in large documents");
+    }
+}
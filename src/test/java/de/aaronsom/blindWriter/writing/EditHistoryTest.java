@@ -0,0 +1,72 @@
+package de.aaronsom.blindWriter.writing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EditHistoryTest {
+
+    EditHistory editHistory;
+
+    @BeforeEach
+    void init(){
+        editHistory = new EditHistory(3);
+    }
+
+    @Test
+    void emptyHistoryTest(){
+        assertFalse(editHistory.canUndo(), "Newly created history has nothing to undo");
+        assertFalse(editHistory.canRedo(), "Newly created history has nothing to redo");
+        assertEquals(-1, editHistory.undo(), "Undo without operations returns no slot");
+        assertEquals(-1, editHistory.redo(), "Redo without operations returns no slot");
+    }
+
+    @Test
+    void undoReturnsOperationsInReverseOrderTest(){
+        editHistory.recordAppend('a', 0);
+        editHistory.recordRemove('a', 0);
+
+        int slot = editHistory.undo();
+        assertEquals(EditHistory.REMOVE, editHistory.getType(slot), "Most recent operation is undone first");
+        slot = editHistory.undo();
+        assertEquals(EditHistory.APPEND, editHistory.getType(slot), "Older operation is undone second");
+        assertEquals('a', editHistory.getCodePoint(slot), "Code point of the operation is kept");
+        assertEquals(0, editHistory.getOffset(slot), "Offset of the operation is kept");
+        assertFalse(editHistory.canUndo(), "All operations have been undone");
+    }
+
+    @Test
+    void redoAfterUndoTest(){
+        editHistory.recordAppend('a', 0);
+        editHistory.recordAppend('b', 1);
+        editHistory.undo();
+        editHistory.undo();
+
+        assertEquals('a', editHistory.getCodePoint(editHistory.redo()), "Oldest undone operation is redone first");
+        assertEquals('b', editHistory.getCodePoint(editHistory.redo()), "Newer undone operation is redone second");
+        assertFalse(editHistory.canRedo(), "All operations have been redone");
+        assertTrue(editHistory.canUndo(), "Redone operations can be undone again");
+    }
+
+    @Test
+    void recordDiscardsRedoTest(){
+        editHistory.recordAppend('a', 0);
+        editHistory.undo();
+        editHistory.recordAppend('b', 0);
+        assertFalse(editHistory.canRedo(), "A new operation discards the undone operations");
+    }
+
+    @Test
+    void capacityOverflowDropsOldestTest(){
+        editHistory.recordAppend('a', 0);
+        editHistory.recordAppend('b', 1);
+        editHistory.recordAppend('c', 2);
+        editHistory.recordAppend('d', 3);
+
+        assertEquals('d', editHistory.getCodePoint(editHistory.undo()), "Newest operation is kept");
+        assertEquals('c', editHistory.getCodePoint(editHistory.undo()), "Newer operation is kept");
+        assertEquals('b', editHistory.getCodePoint(editHistory.undo()), "Newer operation is kept");
+        assertFalse(editHistory.canUndo(), "Oldest operation is dropped once the capacity is exceeded");
+    }
+}
@@ -0,0 +1,81 @@
+package de.aaronsom.blindWriter.writing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordWalkerTest {
+
+    List<String> words = Arrays.asList("haus", "hof");
+    WordWalker<String> walker;
+
+    @BeforeEach
+    void init(){
+        // the nodes are the prefixes of the words
+        walker = new WordWalker<>((node, letter) -> {
+            String child = node + letter;
+            return words.stream().anyMatch(word -> word.startsWith(child)) ? child : null;
+        });
+        walker.startWord("");
+    }
+
+    @Test
+    void lettersAreFollowedInLowerCaseTest(){
+        append("HaU");
+        assertEquals("hau", walker.getNode(), "Letters are followed in lower case");
+        assertEquals(3, walker.getLength(), "Every letter counts");
+    }
+
+    @Test
+    void noLetterIsNotFollowedTest(){
+        append("ha");
+        assertFalse(walker.append(' '), "Space is no letter");
+        assertEquals("ha", walker.getNode(), "Word is unchanged by a character that is no letter");
+    }
+
+    @Test
+    void unknownPrefixTest(){
+        append("hx");
+        assertNull(walker.getNode(), "No word starts with the letters");
+        append("y");
+        assertNull(walker.getNode(), "No word continues after a dead end");
+        assertEquals(3, walker.getLength(), "Letters after a dead end are counted");
+    }
+
+    @Test
+    void removeStepsBackTest(){
+        append("hax");
+        walker.remove(2);
+        append("o");
+        assertEquals("ho", walker.getNode(), "Removed letters are stepped back over");
+        assertTrue(walker.isKnown(), "Word is known while only its own letters are removed");
+    }
+
+    @Test
+    void removeBeyondWordStartTest(){
+        append("h");
+        walker.remove(2);
+        assertFalse(walker.isKnown(), "Removing before the word makes it unknown");
+        walker.startWord("");
+        assertTrue(walker.isKnown(), "New word is known");
+    }
+
+    @Test
+    void longWordTest(){
+        for(int i = 0; i < 100; i++){
+            walker.append('a');
+        }
+        assertEquals(100, walker.getLength(), "Words longer than the initial path are followed");
+        assertNull(walker.getNode(), "No word starts with the letters");
+    }
+
+    void append(String text){
+        for(char c : text.toCharArray()){
+            walker.append(c);
+        }
+    }
+}